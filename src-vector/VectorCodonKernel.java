@@ -0,0 +1,72 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/* Vector API path of VectorCodonCounter, looked up reflectively when the jdk.incubator.vector module is present.
+ * Works on blocks of whole codons: the bytes of a block are classified into 2-bit codes (-1 for anything that is
+ * not a base) in wide lanes, then codon indexes are formed for every position with three shifted loads
+ * (code << 4 | next << 2 | next), an invalid base leaves the index negative. The histogram takes every third
+ * index and stops at the first STOP codon; a scatter-add is not expressible with the Vector API, so that loop is scalar. */
+final class VectorCodonKernel {
+  private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+  /* bytes per block, a multiple of 3 so blocks hold whole codons */
+  private static final int BLOCK = 3 * 2048;
+
+  private VectorCodonKernel() {
+  }
+
+  static CodonUsageProfile count(byte[] rna, int from, int to) {
+    CodonUsageProfile profile = new CodonUsageProfile();
+    byte[] codes = new byte[BLOCK];
+    byte[] indexes = new byte[BLOCK];
+    int end = from + (to - from) / 3 * 3;
+
+    for (int block = from; block < end; block += BLOCK) {
+      int length = Math.min(BLOCK, end - block);
+      classify(rna, block, length, codes);
+      combine(codes, length, indexes);
+
+      for (int j = 0; j < length; j += 3) {
+        int codonIndex = indexes[j];
+        if (codonIndex >= 0 && AminoAcidResources.getCodonSlot(codonIndex) < 0)
+          return profile; //STOP
+        profile.addCodon(codonIndex);
+      }
+    }
+    return profile;
+  }
+
+  /********************************************************************************************/
+  /* helper method that turns length bytes of rna (from offset) into 2-bit codes, -1 if not a base */
+  private static void classify(byte[] rna, int offset, int length, byte[] codes) {
+    int i = 0;
+    for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+      //setting the 0x20 bit turns upper case letters into lower case, no other byte becomes a/c/g/u
+      ByteVector lower = ByteVector.fromArray(SPECIES, rna, offset + i).or((byte) 0x20);
+      ByteVector code = ByteVector.broadcast(SPECIES, (byte) -1)
+          .blend((byte) 0, lower.eq((byte) 'a'))
+          .blend((byte) 1, lower.eq((byte) 'c'))
+          .blend((byte) 2, lower.eq((byte) 'g'))
+          .blend((byte) 3, lower.eq((byte) 'u'));
+      code.intoArray(codes, i);
+    }
+    for (; i < length; i++) {
+      codes[i] = (byte) AminoAcidResources.baseIndex((char) rna[offset + i]);
+    }
+  }
+
+  /* helper method that forms the codon index starting at every position of the block (the last two are not needed) */
+  private static void combine(byte[] codes, int length, byte[] indexes) {
+    int last = length - 2;
+    int p = 0;
+    for (; p < SPECIES.loopBound(last); p += SPECIES.length()) {
+      ByteVector first = ByteVector.fromArray(SPECIES, codes, p).lanewise(VectorOperators.LSHL, 4);
+      ByteVector second = ByteVector.fromArray(SPECIES, codes, p + 1).lanewise(VectorOperators.LSHL, 2);
+      ByteVector third = ByteVector.fromArray(SPECIES, codes, p + 2);
+      first.or(second).or(third).intoArray(indexes, p);
+    }
+    for (; p < last; p++) {
+      indexes[p] = (byte) ((codes[p] << 4) | (codes[p + 1] << 2) | codes[p + 2]);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/* Throughput and allocation benchmark of the ingest, decode, sort and compare hot paths.
+ * Run with: java -cp <classes> AminoAcidBenchmark [max sequence length] [seconds per measurement]
+ * Sequences of 1kb up to 100Mb (or the given maximum) are generated without STOP codons, and again with a STOP
+ * after 1% of the codons. Every measurement is warmed up for the same time it is measured, then reports
+ * operations per second, input MB/s (for the sequence benchmarks) and bytes allocated per operation,
+ * read from the JVM's per-thread allocation counter (the same counter the JMH gc profiler uses).
+ * The ParallelRNATranslator rows allocate on the pool's worker threads, so they add up the counters of every thread
+ * (n/a if a thread ended during the measurement and its allocations were lost). */
+class AminoAcidBenchmark {
+  private static final int[] SIZES = {1_000, 100_000, 10_000_000, 100_000_000};
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  /* results are stored here so the JIT can not drop the measured calls */
+  static volatile Object sink;
+
+  private static long measureNanos;
+
+  public static void main(String[] args) {
+    int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000;
+    measureNanos = (long) ((args.length > 1 ? Double.parseDouble(args[1]) : 1.0) * 1e9);
+
+    System.out.printf("%-52s %10s %14s %10s %14s%n", "benchmark", "length", "ops/s", "MB/s", "bytes/op");
+    for (int size : SIZES) {
+      if (size > maxSize)
+        break;
+      for (boolean earlyStop : new boolean[]{false, true}) {
+        String rna = randomRNA(size, earlyStop, new Random(size));
+        String suffix = earlyStop ? " (early STOP)" : "";
+        measure("createFromRNASequence" + suffix, size, false, () -> AminoAcidLL.createFromRNASequence(rna));
+        measure("createSortedFromRNASequence" + suffix, size, false, () -> AminoAcidLL.createSortedFromRNASequence(rna));
+        measure("CodonUsageProfile.createFromRNASequence" + suffix, size, false, () -> CodonUsageProfile.createFromRNASequence(rna));
+        measure("ParallelRNATranslator" + suffix, size, true, () -> ParallelRNATranslator.createFromRNASequence(rna));
+      }
+    }
+
+    String[] codons = new String[64];
+    for (int i = 0; i < 64; i++) {
+      codons[i] = "" + "ACGU".charAt(i >> 4) + "ACGU".charAt((i >> 2) & 3) + "ACGU".charAt(i & 3);
+    }
+    measure("getAminoAcidFromCodon (64 codons)", 0, false, () -> {
+      int sum = 0;
+      for (String codon : codons) {
+        sum += AminoAcidResources.getAminoAcidFromCodon(codon);
+      }
+      return sum;
+    });
+
+    //the lists are copied (scale(1)) on every operation because sorting relinks them, copy alone is the baseline.
+    //sort1 is the original merge sort, which loses nodes, so the names show how many nodes each sort returns
+    AminoAcidLL unsorted = AminoAcidLL.createFromRNASequence(randomRNA(3_000, false, new Random(1)));
+    int nodes = unsorted.length();
+    measure("copy (baseline of the sorts)", 0, false, () -> unsorted.scale(1));
+    measure("sort (" + AminoAcidLL.sort(unsorted.scale(1)).length() + " of " + nodes + " nodes)", 0, false,
+        () -> AminoAcidLL.sort(unsorted.scale(1)));
+    measure("sort1 (" + AminoAcidLL.sort1(unsorted.scale(1)).length() + " of " + nodes + " nodes)", 0, false,
+        () -> AminoAcidLL.sort1(unsorted.scale(1)));
+
+    AminoAcidLL sorted1 = AminoAcidLL.createSortedFromRNASequence(randomRNA(3_000, false, new Random(2)));
+    AminoAcidLL sorted2 = AminoAcidLL.createSortedFromRNASequence(randomRNA(3_000, false, new Random(3)));
+    measure("aminoAcidCompare", 0, false, () -> sorted1.aminoAcidCompare(sorted2));
+    measure("codonCompare", 0, false, () -> sorted1.codonCompare(sorted2));
+  }
+
+  /********************************************************************************************/
+  /* helper method that warms up, measures and prints one benchmark.
+   * allThreads counts the allocations of every thread instead of only this one */
+  private static void measure(String name, int length, boolean allThreads, Supplier<Object> operation) {
+    run(operation, measureNanos);
+
+    long[] threadIds = allThreads ? THREADS.getAllThreadIds() : new long[]{Thread.currentThread().getId()};
+    long[] bytesBefore = allocatedBytes(threadIds);
+    long start = System.nanoTime();
+    long operations = run(operation, measureNanos);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    long bytes = allocatedSince(threadIds, bytesBefore);
+
+    double opsPerSecond = operations / seconds;
+    String megabytes = length > 0 ? String.format("%10.1f", opsPerSecond * length / 1e6) : String.format("%10s", "-");
+    String perOperation = bytes >= 0 ? String.format("%14.1f", (double) bytes / operations) : String.format("%14s", "n/a");
+    System.out.printf("%-52s %10d %14.1f %s %s%n", name, length, opsPerSecond, megabytes, perOperation);
+  }
+
+  /* runs the operation until the time is up, returns how many times it ran */
+  private static long run(Supplier<Object> operation, long nanos) {
+    long end = System.nanoTime() + nanos;
+    long operations = 0;
+    do {
+      sink = operation.get();
+      operations++;
+    } while (System.nanoTime() < end);
+    return operations;
+  }
+
+  /* bytes allocated so far by each of the threads (-1 for a thread that ended), null if the JVM does not count them */
+  private static long[] allocatedBytes(long[] threadIds) {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+      if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+        return threads.getThreadAllocatedBytes(threadIds);
+    }
+    return null;
+  }
+
+  /* bytes allocated by the threads since before was read plus everything allocated by threads started since,
+   * -1 if the JVM does not count them or one of the threads ended (its allocations are lost) */
+  private static long allocatedSince(long[] threadIds, long[] before) {
+    if (before == null)
+      return -1;
+
+    long bytes = 0;
+    long[] after = allocatedBytes(threadIds);
+    for (int i = 0; i < threadIds.length; i++) {
+      if (before[i] < 0)
+        continue;
+      if (after[i] < 0)
+        return -1;
+      bytes += after[i] - before[i];
+    }
+
+    //threads started during the measurement (new pool workers) allocated everything they have
+    if (threadIds.length > 1) {
+      long[] now = THREADS.getAllThreadIds();
+      long[] nowBytes = allocatedBytes(now);
+      for (int i = 0; i < now.length; i++) {
+        if (nowBytes[i] > 0 && !contains(threadIds, now[i]))
+          bytes += nowBytes[i];
+      }
+    }
+    return bytes;
+  }
+
+  private static boolean contains(long[] values, long value) {
+    for (long v : values) {
+      if (v == value)
+        return true;
+    }
+    return false;
+  }
+
+  /********************************************************************************************/
+  /* random RNA of the given length (rounded down to whole codons) without STOP codons,
+   * or with one STOP after 1% of the codons */
+  static String randomRNA(int length, boolean earlyStop, Random random) {
+    StringBuilder sb = new StringBuilder(length);
+    int codons = length / 3;
+    for (int i = 0; i < codons; i++) {
+      if (earlyStop && i == codons / 100) {
+        sb.append("UAA");
+        continue;
+      }
+      int codonIndex;
+      do {
+        codonIndex = random.nextInt(64);
+      } while (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*');
+      sb.append("ACGU".charAt(codonIndex >> 4)).append("ACGU".charAt((codonIndex >> 2) & 3)).append("ACGU".charAt(codonIndex & 3));
+    }
+    return sb.toString();
+  }
+}
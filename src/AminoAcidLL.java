@@ -1,3 +1,10 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
 class AminoAcidLL {
   char aminoAcid;
   String[] codons;
@@ -7,52 +14,70 @@ class AminoAcidLL {
   AminoAcidLL() {
   }
 
+  /* Creates a node for the given amino acid with all of its codon counts at 0 */
+  AminoAcidLL(char aminoAcid) {
+    this.aminoAcid = aminoAcid;
+    this.codons = AminoAcidResources.sharedCodonListForAminoAcid(aminoAcid);
+    this.counts = new int[codons.length];
+  }
+
   /********************************************************************************************/
   /* Creates a new node, with a given amino acid/codon
    * pair and increments the codon counter for that codon.
    * NOTE: Does not check for repeats!! */
   AminoAcidLL(String inCodon) {
+    this(AminoAcidResources.codonIndex(inCodon));
+  }
+
+  /* Same as above, taking the codon index (see AminoAcidResources.codonIndex) */
+  AminoAcidLL(int codonIndex) {
     //method call to get the amino acid character of an specific codon
-    this.aminoAcid = AminoAcidResources.getAminoAcidFromCodon(inCodon);
-    //method call to get the possible codons [array] of the amino acid
-    this.codons = AminoAcidResources.getCodonListForAminoAcid(this.aminoAcid);
+    this.aminoAcid = AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex);
+    //shared list of the possible codons [array] of the amino acid, it is never modified
+    this.codons = AminoAcidResources.sharedCodonListForAminoAcid(this.aminoAcid);
     //initializes the counts for each codon
     this.counts = new int[codons.length];
     //increments the count for the codon passed in the constructor
-    incrementCount(inCodon);
+    incrementCount(codonIndex);
     //creates the next link of the linked list [set to null]
     this.next = null;
   }
 
   /********************************************************************************************/
-  /* Recursive method that increments the count for a specific codon:
-   * If it should be at this node, increments it and stops,
-   * if not passes the task to the next node.
-   * If there is no next node, add a new node to the list that would contain the codon.
+  /* Increments the count for a specific codon:
+   * walks the list until it finds the node of the codon's amino acid and increments it there.
+   * If there is no such node, adds a new node at the end of the list that would contain the codon.
    */
   private void addCodon(String inCodon) {
-    //compares the current amino acid with the amino acid that results from the codon passed
-    //if it is the same, then it increments the count and does not create another node
-    if (aminoAcid == AminoAcidResources.getAminoAcidFromCodon(inCodon)) {
-      this.incrementCount(inCodon);
+    addCodon(AminoAcidResources.codonIndex(inCodon));
+  }
+
+  private void addCodon(int codonIndex) {
+    char inAminoAcid = AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex);
+    AminoAcidLL node = this;
+
+    //moves to the next node until the amino acid matches or there are no more nodes
+    while (node.aminoAcid != inAminoAcid && node.next != null) {
+      node = node.next;
     }
-    //the comparison did not pass and there are other nodes (amino acids), then we move to the next node to check it [recursive call]
-    else if (next != null) {
-      next.addCodon(inCodon);
+
+    //if it is the same, then it increments the count and does not create another node
+    if (node.aminoAcid == inAminoAcid) {
+      node.incrementCount(codonIndex);
     }
     //we reached the end and never found match, we create a new node
     else {
-      this.next = new AminoAcidLL(inCodon);
+      node.next = new AminoAcidLL(codonIndex);
     }
   }
 
   /********************************************************************************************/
-  /* Helper method that increments the count of the codon usage */
-  private void incrementCount(String inCodon) {
-    for (int i = 0; i < this.codons.length; i++) {
-      if (this.codons[i].equals(inCodon)) {
-        this.counts[i]++;
-      }
+  /* Helper method that increments the count of the codon usage.
+   * The codon's position in the codons array is looked up, invalid codons are not counted */
+  private void incrementCount(int codonIndex) {
+    int slot = AminoAcidResources.getCodonSlot(codonIndex);
+    if (slot >= 0 && slot < counts.length) {
+      this.counts[slot]++;
     }
   }
 
@@ -87,37 +112,10 @@ class AminoAcidLL {
   }
 
   /********************************************************************************************/
-  /* Recursive method that finds the differences in **Amino Acid** counts.
+  /* Finds the differences in **Amino Acid** counts.
    * the list *must* be sorted to use this method */
   public int aminoAcidCompare(AminoAcidLL inList) {
-    //both lists are at the end
-    if(inList.next == null && this.next == null){
-      if(this.aminoAcid == inList.aminoAcid)
-        return this.totalDiff(inList);
-
-      return inList.totalCount() + this.totalCount();
-    }
-
-    //both list have the same aminoacid
-    if(this.aminoAcid == inList.aminoAcid){
-      //the next in "this" is null
-      if(this.next == null) {
-        return this.totalDiff(inList) + sum(inList.next);
-      }
-      //the next in inList is null
-      if(inList.next == null)
-        return this.totalDiff(inList) + sum(this.next);
-
-      //no next null values
-      return this.totalDiff(inList) + this.next.aminoAcidCompare(inList.next);
-    }
-
-    //compares the characters
-    if(this.next != null && this.aminoAcid < inList.aminoAcid){
-      return this.totalCount() + this.next.aminoAcidCompare(inList);
-    }
-
-    return inList.totalCount() + this.aminoAcidCompare(inList.next);
+    return compare(inList, false);
   }
 
   //helper method
@@ -137,80 +135,183 @@ class AminoAcidLL {
   /* Same as above, but counts the codon usage differences
    * Must be sorted. */
   public int codonCompare(AminoAcidLL inList) {
-    //both lists are at the end
-    if(inList.next == null && this.next == null){
-      if(this.aminoAcid == inList.aminoAcid)
-        return this.codonDiff(inList);
+    return compare(inList, true);
+  }
 
-      return inList.totalCount() + this.totalCount();
-    }
+  /* helper method that walks both sorted lists together, like the merge step of merge sort:
+   * matching amino acids add their difference, an amino acid that is only in one list adds its total count */
+  private int compare(AminoAcidLL inList, boolean byCodon) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    AminoAcidLL curNode = this;
+    int diff = 0;
 
-    //both list have the same aminoacid
-    if(this.aminoAcid == inList.aminoAcid){
-      //the next in "this" is null
-      if(this.next == null) {
-        return this.codonDiff(inList) + sum(inList.next);
+    while (curNode != null && inList != null) {
+      //both list have the same aminoacid
+      if (curNode.aminoAcid == inList.aminoAcid) {
+        diff += byCodon ? curNode.codonDiff(inList) : curNode.totalDiff(inList);
+        curNode = curNode.next;
+        inList = inList.next;
+      }
+      //compares the characters, the smaller one is missing from the other list
+      else if (curNode.aminoAcid < inList.aminoAcid) {
+        diff += curNode.totalCount();
+        curNode = curNode.next;
+      }
+      else {
+        diff += inList.totalCount();
+        inList = inList.next;
       }
-      //the next in inList is null
-      if(inList.next == null)
-        return this.codonDiff(inList) + sum(this.next);
-
-      //no next null values
-      return this.codonDiff(inList) + this.next.codonCompare(inList.next);
     }
 
-    //compare the characters
-    if(this.next != null && this.aminoAcid < inList.aminoAcid){
-      return this.totalCount() + this.next.codonCompare(inList);
-    }
+    //whatever is left is only in one of the lists
+    diff += sum(curNode) + sum(inList);
 
-    return inList.totalCount() + this.codonCompare(inList.next);
+    if (metrics != null)
+      metrics.compare(System.nanoTime() - start);
+    return diff;
   }
 
-
   /********************************************************************************************/
-  /* Recursively returns the total list of amino acids in the order that they are in in the linked list. */
-  public char[] aminoAcidList() {
-    //base case
-    if (next == null) {
-      return new char[]{aminoAcid};
+  /* Returns a new sorted list with the codon counts of both lists added together.
+   * Both lists *must* be sorted, they are walked together like in aminoAcidCompare and are not changed */
+  public AminoAcidLL add(AminoAcidLL inList) {
+    return combine(inList, 1);
+  }
+
+  /* Returns a new sorted list with the codon counts of inList taken away from this list's counts.
+   * Amino acids whose counts drop to 0 are removed. Both lists *must* be sorted */
+  public AminoAcidLL subtract(AminoAcidLL inList) {
+    return combine(inList, -1);
+  }
+
+  /* Returns a new list (same order) with every codon count multiplied by factor.
+   * Like subtract, amino acids whose counts drop to 0 are removed, so scale(0) gives an empty list */
+  public AminoAcidLL scale(int factor) {
+    if (factor < 0)
+      throw new IllegalArgumentException("factor can not be negative: " + factor);
+
+    AminoAcidLL result = new AminoAcidLL();
+    AminoAcidLL tail = result;
+    for (AminoAcidLL node = this; node != null; node = node.next) {
+      AminoAcidLL copy = node.copy(factor, null, 0);
+      if (copy.totalCount() == 0 && node.totalCount() > 0)
+        continue;
+      tail.next = copy;
+      tail = copy;
     }
+    return result.next;
+  }
 
-    //recursive call to "append" the aminoacids
-    char[] temp = next.aminoAcidList();
-    //array that stores each of the amino acid characters
-    char[] ret = new char[temp.length+1];
+  /* helper method that merges both sorted lists, adding sign * the counts of inList */
+  private AminoAcidLL combine(AminoAcidLL inList, int sign) {
+    //placeholder node in front of the result
+    AminoAcidLL result = new AminoAcidLL();
+    AminoAcidLL tail = result;
+    AminoAcidLL curNode = this;
+
+    while (curNode != null || inList != null) {
+      AminoAcidLL node;
+      //both list have the same aminoacid
+      if (curNode != null && inList != null && curNode.aminoAcid == inList.aminoAcid) {
+        node = curNode.copy(1, inList, sign);
+        //a subtraction that used up all of the amino acid's codons removes it
+        if (node.totalCount() == 0 && curNode.totalCount() > 0)
+          node = null;
+        curNode = curNode.next;
+        inList = inList.next;
+      }
+      //compares the characters, the smaller one is only in its own list
+      else if (inList == null || (curNode != null && curNode.aminoAcid < inList.aminoAcid)) {
+        node = curNode.copy(1, null, 0);
+        curNode = curNode.next;
+      }
+      else {
+        node = inList.copy(sign, null, 0);
+        inList = inList.next;
+      }
 
-    //copies temp values in ret
-    ret[0] = aminoAcid;
-    for(int i = 0; i < temp.length; i++){
-      ret[i+1] = temp[i];
+      if (node != null) {
+        tail.next = node;
+        tail = node;
+      }
+    }
+    return result.next;
+  }
+
+  /* helper method that copies this node with its counts times factor, plus sign * the counts of other
+   * (a node of the same amino acid, or null) */
+  private AminoAcidLL copy(int factor, AminoAcidLL other, int sign) {
+    AminoAcidLL node = new AminoAcidLL(aminoAcid);
+    for (int i = 0; i < counts.length; i++) {
+      int count = Math.multiplyExact(counts[i], factor);
+      if (other != null)
+        count = Math.addExact(count, sign * other.counts[i]);
+      if (count < 0)
+        throw new IllegalArgumentException("codon count of " + aminoAcid + " would be negative");
+      node.counts[i] = count;
     }
+    return node;
+  }
 
+
+  /********************************************************************************************/
+  /* Returns the total list of amino acids in the order that they are in in the linked list. */
+  public char[] aminoAcidList() {
+    //array that stores each of the amino acid characters, sized once
+    char[] ret = new char[length()];
+    aminoAcidList(ret, 0);
     return ret;
   }
 
+  /* Same as above, but writes the amino acids into dest starting at offset so no array is allocated.
+   * Returns the number of amino acids written */
+  public int aminoAcidList(char[] dest, int offset) {
+    int i = offset;
+    for (AminoAcidLL node = this; node != null; node = node.next) {
+      dest[i++] = node.aminoAcid;
+    }
+    return i - offset;
+  }
+
   /********************************************************************************************/
-  /* Recursively returns the total counts of amino acids in the order that they are in in the linked list. */
+  /* Returns the total counts of amino acids in the order that they are in in the linked list. */
   public int[] aminoAcidCounts() {
-  //base case
-   if(next == null){
-      return new int[]{this.totalCount()};
-   }
-
-   //recursive call to get the total counts of the specific aminoacid
-   int[] temp = next.aminoAcidCounts();
-   //array that stores each of the counts
-   int[] ret = new int[temp.length+1];
-
-   //copies temp values in ret
-   ret[0] = totalCount();
-   for(int i = 0; i < temp.length; i++){
-      ret[i+1] = temp[i];
-   }
+    //array that stores each of the counts, sized once
+    int[] ret = new int[length()];
+    aminoAcidCounts(ret, 0);
     return ret;
   }
 
+  /* Same as above, but writes the counts into dest starting at offset so no array is allocated.
+   * Returns the number of counts written */
+  public int aminoAcidCounts(int[] dest, int offset) {
+    int i = offset;
+    for (AminoAcidLL node = this; node != null; node = node.next) {
+      dest[i++] = node.totalCount();
+    }
+    return i - offset;
+  }
+
+  /* Same as above, putting the counts at the buffer's position. Returns the number of counts written */
+  public int aminoAcidCounts(IntBuffer dest) {
+    int written = 0;
+    for (AminoAcidLL node = this; node != null; node = node.next) {
+      dest.put(node.totalCount());
+      written++;
+    }
+    return written;
+  }
+
+  /* helper method that counts the nodes of the list */
+  int length() {
+    int length = 0;
+    for (AminoAcidLL node = this; node != null; node = node.next) {
+      length++;
+    }
+    return length;
+  }
+
   public static void printAminoAcidCounts(int[] array){
 
     for(int i = 0; i < array.length; i++){
@@ -220,96 +321,265 @@ class AminoAcidLL {
   }
 
   /********************************************************************************************/
-  /* recursively determines if a linked list is sorted or not */
+  /* determines if a linked list is sorted or not */
   public boolean isSorted() {
-    if(next == null){
-      return true;
+    for (AminoAcidLL node = this; node.next != null; node = node.next) {
+      if (node.aminoAcid > node.next.aminoAcid)
+        return false;
     }
-
-    if(aminoAcid > next.aminoAcid)
-      return false;
-
-    return next.isSorted();
+    return true;
   }
 
   /********************************************************************************************/
   /* Static method for generating a linked list from an RNA sequence */
   public static AminoAcidLL createFromRNASequence(String inSequence) {
+    return createFromRNASequence((CharSequence) inSequence);
+  }
+
+  /********************************************************************************************/
+  /* Walks the sequence with a cursor instead of cutting it down with substring,
+   * so the whole sequence is read in one linear pass.
+   * Translation stops at the first STOP codon, a trailing partial codon is ignored */
+  public static AminoAcidLL createFromRNASequence(CharSequence inSequence) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
     //initializes the head to null
     AminoAcidLL head = null;
+    int invalid = 0;
+    int i = 0;
 
-    for (int i = 0; i < inSequence.length(); i++) {
+    for (; i + 3 <= inSequence.length(); i += 3) {
+      int codonIndex = AminoAcidResources.codonIndex(inSequence, i);
       //if the codon encodes a STOP, then we break out of the loop
-      if(AminoAcidResources.getAminoAcidFromCodon(inSequence.substring(0,3)) == '*')
+      if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
         break;
-      //The head is initialized since it is the first iteration
-      if (i == 0) {
-        head = new AminoAcidLL(inSequence.substring(0, 3));
-        inSequence = inSequence.substring(3);
-      }
-      //the rest of the nodes are created by separating the string in substring of length 3
-      else {
-        if(AminoAcidResources.getAminoAcidFromCodon(inSequence.substring(0,3)) == '*')
-          break;
-        head.addCodon(inSequence.substring(0, 3));
-        inSequence = inSequence.substring(3);
-        i = 1;
+      if (codonIndex < 0)
+        invalid++;
+      head = appendCodon(head, codonIndex);
+    }
+
+    if (metrics != null)
+      reportIngest(metrics, start, i, invalid, i + 3 <= inSequence.length(), head);
+    return head;
+  }
+
+  /********************************************************************************************/
+  /* Streams the sequence from a reader, one codon at a time, so the input never has to be
+   * held in memory. Whitespace (line breaks) is skipped, translation stops at the first STOP codon */
+  public static AminoAcidLL createFromRNASequence(Reader in) throws IOException {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    AminoAcidLL head = null;
+    char[] buffer = new char[8192];
+    char[] codon = new char[3];
+    int filled = 0;
+    int read;
+    //position of the next codon (whitespace not included) and number of invalid codons
+    long position = 0;
+    int invalid = 0;
+
+    while ((read = in.read(buffer)) != -1) {
+      for (int i = 0; i < read; i++) {
+        if (Character.isWhitespace(buffer[i]))
+          continue;
+        codon[filled++] = buffer[i];
+        //a full codon was read, translate it and start the next one
+        if (filled == 3) {
+          int codonIndex = AminoAcidResources.codonIndex(codon[0], codon[1], codon[2]);
+          if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*') {
+            if (metrics != null)
+              reportIngest(metrics, start, position, invalid, true, head);
+            return head;
+          }
+          if (codonIndex < 0)
+            invalid++;
+          head = appendCodon(head, codonIndex);
+          filled = 0;
+          position += 3;
+        }
       }
     }
+
+    if (metrics != null)
+      reportIngest(metrics, start, position, invalid, false, head);
     return head;
   }
 
   /********************************************************************************************/
-  /* sorts a list by amino acid character*/
-  //Uses insertion sort
-  public static AminoAcidLL sort(AminoAcidLL inList) {
-    AminoAcidLL beforeCurrent = inList;
-    AminoAcidLL curNode = inList.next;
-    AminoAcidLL next;
-    AminoAcidLL position;
-
-    while(curNode != null){
-      next = curNode.next;
-      //method call to find the insertion position
-      position = findInsertion(curNode.aminoAcid, inList);
-
-      if(position == beforeCurrent){
-        beforeCurrent = curNode;
+  /* Same as above, reading an ASCII encoded stream */
+  public static AminoAcidLL createFromRNASequence(InputStream in) throws IOException {
+    return createFromRNASequence(new InputStreamReader(in, StandardCharsets.US_ASCII));
+  }
+
+  /* helper method that adds a codon to the list, creating the head if there is none yet */
+  static AminoAcidLL appendCodon(AminoAcidLL head, int codonIndex) {
+    if (head == null)
+      return new AminoAcidLL(codonIndex);
+
+    head.addCodon(codonIndex);
+    return head;
+  }
+  /********************************************************************************************/
+  /* Same as createFromRNASequence, but every new amino acid node is inserted at its place in letter order,
+   * so the list is already sorted (ready for aminoAcidCompare/codonCompare) and does not need sort */
+  public static AminoAcidLL createSortedFromRNASequence(CharSequence inSequence) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    AminoAcidLL head = null;
+    int invalid = 0;
+    int i = 0;
+
+    for (; i + 3 <= inSequence.length(); i += 3) {
+      int codonIndex = AminoAcidResources.codonIndex(inSequence, i);
+      //if the codon encodes a STOP, then we break out of the loop
+      if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
+        break;
+      if (codonIndex < 0)
+        invalid++;
+      head = insertCodon(head, codonIndex);
+    }
+
+    if (metrics != null)
+      reportIngest(metrics, start, i, invalid, i + 3 <= inSequence.length(), head);
+    return head;
+  }
+
+  /* helper method that reports a finished translation, end is the position where reading stopped */
+  private static void reportIngest(ProfilingMetrics metrics, long start, long end, int invalid, boolean stopped, AminoAcidLL head) {
+    int nodes = head == null ? 0 : head.length();
+    metrics.ingest(end / 3, invalid, stopped ? end : -1, nodes, System.nanoTime() - start);
+  }
+
+  /* helper method that adds a codon to a sorted list, keeping it sorted. Returns the (new) head */
+  static AminoAcidLL insertCodon(AminoAcidLL head, int codonIndex) {
+    char inAminoAcid = AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex);
+    AminoAcidLL beforeCurrent = null;
+    AminoAcidLL curNode = head;
+
+    //iterates through the list until the amino acid is not less than the node's amino acid
+    while (curNode != null && curNode.aminoAcid < inAminoAcid) {
+      beforeCurrent = curNode;
+      curNode = curNode.next;
+    }
+
+    //the amino acid is already in the list
+    if (curNode != null && curNode.aminoAcid == inAminoAcid) {
+      curNode.incrementCount(codonIndex);
+      return head;
+    }
+
+    //inserts a new node before curNode
+    AminoAcidLL node = new AminoAcidLL(codonIndex);
+    node.next = curNode;
+    if (beforeCurrent == null)
+      return node;
+
+    beforeCurrent.next = node;
+    return head;
+  }
+
+  /* helper method that adds the codon counts of inList to the list, in discovery order:
+   * amino acids that are already in the list add their counts, the rest are appended
+   * (in the order of inList). The nodes of inList are reused */
+  static AminoAcidLL appendCounts(AminoAcidLL head, AminoAcidLL inList) {
+    while (inList != null) {
+      AminoAcidLL nextIn = inList.next;
+      AminoAcidLL curNode = head;
+      AminoAcidLL last = null;
+
+      //looks for the same amino acid in the list
+      while (curNode != null && curNode.aminoAcid != inList.aminoAcid) {
+        last = curNode;
+        curNode = curNode.next;
       }
-      else {
-        beforeCurrent.next = null;
-
-        //prepends the node
-        if(position == null){
-          AminoAcidLL temp = inList;
-          inList = curNode;
-          curNode.next = temp;
-          beforeCurrent.next = next;
-        }
-        //inserts the node after "position"
-        else{
-          position.next = curNode;
-          curNode.next = beforeCurrent;
-          beforeCurrent.next = next;
+
+      if (curNode != null) {
+        for (int i = 0; i < curNode.counts.length; i++) {
+          curNode.counts[i] += inList.counts[i];
         }
       }
-      //moves to the next node
-      curNode = next;
+      else {
+        inList.next = null;
+        if (last == null)
+          head = inList;
+        else
+          last.next = inList;
+      }
+      inList = nextIn;
     }
-    return inList;
+    return head;
   }
 
-  /* helper method that searches the list from the head toward the current node to find the insertion position */
-    private static AminoAcidLL findInsertion(char aminoAcid, AminoAcidLL inList){
-    AminoAcidLL curNodeA = null;
-    AminoAcidLL curNodeB = inList;
 
-    //iterates through the list until the amino acid is less than another amino acid
-    while(curNodeB != null && aminoAcid > curNodeB.aminoAcid){
-      curNodeA = curNodeB;
-      curNodeB = curNodeB.next;
+  /********************************************************************************************/
+  /* sorts a list by amino acid character.
+   * Amino acids come from a small alphabet, so the nodes are relinked one letter at a time: every pass moves
+   * the nodes of the smallest letter left to the end of the sorted list (in list order, so the sort is stable)
+   * and finds the next letter. There is one pass per different letter, which keeps the sort linear
+   * in the length of the list, and no memory is allocated */
+  public static AminoAcidLL sort(AminoAcidLL inList) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    if (inList == null || inList.isSorted()) {
+      if (metrics != null)
+        metrics.sort(inList == null ? 0 : inList.length(), 0, System.nanoTime() - start);
+      return inList;
+    }
+
+    AminoAcidLL sortedHead = null;
+    int nodes = 0;
+    //nodes that were moved ahead of others
+    long relinks = 0;
+    AminoAcidLL sortedTail = null;
+
+    //smallest letter of the list
+    char letter = inList.aminoAcid;
+    for (AminoAcidLL node = inList.next; node != null; node = node.next) {
+      if (node.aminoAcid < letter)
+        letter = node.aminoAcid;
+    }
+
+    while (inList != null) {
+      char nextLetter = Character.MAX_VALUE;
+      AminoAcidLL beforeCurrent = null;
+      AminoAcidLL curNode = inList;
+
+      while (curNode != null) {
+        AminoAcidLL next = curNode.next;
+
+        if (curNode.aminoAcid == letter) {
+          //unlinks the node from the unsorted list
+          if (beforeCurrent == null) {
+            inList = next;
+          }
+          else {
+            beforeCurrent.next = next;
+            relinks++;
+          }
+          nodes++;
+
+          //appends it to the sorted list
+          curNode.next = null;
+          if (sortedTail == null)
+            sortedHead = curNode;
+          else
+            sortedTail.next = curNode;
+          sortedTail = curNode;
+        }
+        else {
+          if (curNode.aminoAcid < nextLetter)
+            nextLetter = curNode.aminoAcid;
+          beforeCurrent = curNode;
+        }
+        //moves to the next node
+        curNode = next;
+      }
+      letter = nextLetter;
     }
-    return curNodeA;
+
+    if (metrics != null)
+      metrics.sort(nodes, relinks, System.nanoTime() - start);
+    return sortedHead;
   }
 
   /********************************************************************************************/
@@ -350,24 +620,27 @@ class AminoAcidLL {
     return slow;
   }
 
+  /* merges two sorted lists into one sorted list, iteratively so long lists can not overflow the stack */
   public static AminoAcidLL merge(AminoAcidLL left, AminoAcidLL right){
-    AminoAcidLL result = null;
-
-    if(left == null)
-      return right;
-
-    if(right == null)
-      return left;
-
-    if(left.aminoAcid <= right.aminoAcid){
-      result = left;
-      result.next = merge(left.next, right);
-    }
-    else{
-      result = right;
-      result.next = merge(left, right.next);
+    //placeholder node in front of the result
+    AminoAcidLL result = new AminoAcidLL();
+    AminoAcidLL tail = result;
+
+    while(left != null && right != null){
+      if(left.aminoAcid <= right.aminoAcid){
+        tail.next = left;
+        left = left.next;
+      }
+      else{
+        tail.next = right;
+        right = right.next;
+      }
+      tail = tail.next;
     }
-    return result;
+
+    //appends the rest of the list that is not empty
+    tail.next = (left != null) ? left : right;
+    return result.next;
   }
 
   /********************************************************************************************/
@@ -1,98 +1,133 @@
 class AminoAcidResources{
-  public static char getAminoAcidFromCodon(String s){
-    //if this is not a 3 character string, return NULL
-    if(s.length()!=3) return (char)0;
-    s = s.toUpperCase();
-    if(s.charAt(0) == 'A'){
-      if(s.charAt(1) == 'A'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G') return 'K';
-        if(s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'N';
-      }
-      if(s.charAt(1) == 'C'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'T';
-      }
-      if(s.charAt(1) == 'G'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G') return 'R';
-        if(s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'S';
-      }
-      if(s.charAt(1) == 'U'){
-        if(s.charAt(2) == 'G') return 'M';
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'I';
-      }
+  /* Amino acid for every codon, indexed by the codon index (see codonIndex).
+   * STOP codons are '*' */
+  private static final char[] CODON_TABLE = (
+      "KNKNTTTTRSRSIIMI" + // AAA..AUU
+      "QHQHPPPPRRRRLLLL" + // CAA..CUU
+      "EDEDAAAAGGGGVVVV" + // GAA..GUU
+      "*T*TSSSS*CWCLFLF"   // UAA..UUU
+  ).toCharArray();
+
+  /* 2-bit value of every nucleotide character (A=0, C=1, G=2, U=3, either case), -1 otherwise */
+  private static final byte[] BASE_INDEX = new byte[128];
+
+  static {
+    java.util.Arrays.fill(BASE_INDEX, (byte) -1);
+    String bases = "ACGU";
+    for(int i=0; i<bases.length(); i++){
+      BASE_INDEX[bases.charAt(i)] = (byte) i;
+      BASE_INDEX[Character.toLowerCase(bases.charAt(i))] = (byte) i;
     }
-    if(s.charAt(0) == 'C'){
-      if(s.charAt(1) == 'A'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G') return 'Q';
-        if(s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'H';
-      }
-      if(s.charAt(1) == 'C'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'P';
-      }
-      if(s.charAt(1) == 'G'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'R';
-      }
-      if(s.charAt(1) == 'U'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'L';
-      }
-    }
-    if(s.charAt(0) == 'G'){
-      if(s.charAt(1) == 'A'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G') return 'E';
-        if(s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'D';
-      }
-      if(s.charAt(1) == 'C'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'A';
-      }
-      if(s.charAt(1) == 'G'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'G';
-      }
-      if(s.charAt(1) == 'U'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'V';
-      }
-    }
-    if(s.charAt(0) == 'U'){
-      if(s.charAt(1) == 'A'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G') return '*';//STOP
-        if(s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'T';
-      }
-      if(s.charAt(1) == 'C'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G' || s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'S';
-      }
-      if(s.charAt(1) == 'G'){
-        if(s.charAt(2) == 'A' ) return '*'; //STOP
-        if(s.charAt(2) == 'G') return 'W';
-        if(s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'C';
-      }
-      if(s.charAt(1) == 'U'){
-        if(s.charAt(2) == 'A' || s.charAt(2) == 'G') return 'L';
-        if(s.charAt(2) == 'C' || s.charAt(2) == 'U') return 'F';
+  }
+
+  /* returns the 2-bit value of a nucleotide, -1 if the character is not a nucleotide */
+  public static int baseIndex(char c){
+    return c < 128 ? BASE_INDEX[c] : -1;
+  }
+
+  /* returns the 6-bit index (0-63) of a codon, first base in the high bits. -1 if any base is invalid */
+  public static int codonIndex(char c0, char c1, char c2){
+    int b0 = baseIndex(c0);
+    int b1 = baseIndex(c1);
+    int b2 = baseIndex(c2);
+    //any invalid base is -1, which sets the sign bit
+    if((b0 | b1 | b2) < 0) return -1;
+    return (b0 << 4) | (b1 << 2) | b2;
+  }
+
+  public static int codonIndex(CharSequence s, int offset){
+    return codonIndex(s.charAt(offset), s.charAt(offset+1), s.charAt(offset+2));
+  }
+
+  public static int codonIndex(byte[] s, int offset){
+    return codonIndex((char) s[offset], (char) s[offset+1], (char) s[offset+2]);
+  }
+
+  /* given a codon index, returns the Amino Acid character. NULL if the index is -1 (invalid codon) */
+  public static char getAminoAcidFromCodonIndex(int index){
+    return index < 0 ? (char)0 : CODON_TABLE[index];
+  }
+
+  public static char getAminoAcidFromCodon(char c0, char c1, char c2){
+    return getAminoAcidFromCodonIndex(codonIndex(c0, c1, c2));
+  }
+
+  public static char getAminoAcidFromCodon(CharSequence s, int offset){
+    return getAminoAcidFromCodonIndex(codonIndex(s, offset));
+  }
+
+  public static char getAminoAcidFromCodon(byte[] s, int offset){
+    return getAminoAcidFromCodonIndex(codonIndex(s, offset));
+  }
+
+  public static char getAminoAcidFromCodon(String s){
+    //if this is not a 3 character string, codonIndex is -1 and this returns NULL
+    return getAminoAcidFromCodonIndex(codonIndex(s));
+  }
+
+  /* Codon list of every amino acid, indexed by letter ('A' = 0), built once and shared */
+  private static final String[][] CODON_LISTS = new String[26][];
+  private static final String[] NO_CODONS = new String[0];
+
+  /* position of every codon inside the codon list of its amino acid, indexed by codon index.
+   * -1 for the STOP codons */
+  private static final byte[] CODON_SLOT = new byte[64];
+
+  static {
+    CODON_LISTS['A' - 'A'] = new String[]{"GCG","GCA","GCC","GCU"};
+    CODON_LISTS['C' - 'A'] = new String[]{"UGC","UGU"};
+    CODON_LISTS['D' - 'A'] = new String[]{"GAC","GAU"};
+    CODON_LISTS['E' - 'A'] = new String[]{"GAG","GAA"};
+    CODON_LISTS['F' - 'A'] = new String[]{"UUC","UUU"};
+    CODON_LISTS['G' - 'A'] = new String[]{"GGG","GGA","GGC","GGU"};
+    CODON_LISTS['H' - 'A'] = new String[]{"CAC","CAU"};
+    CODON_LISTS['I' - 'A'] = new String[]{"AUA","AUC","AUU"};
+    CODON_LISTS['K' - 'A'] = new String[]{"AAG","AAA"};
+    CODON_LISTS['L' - 'A'] = new String[]{"CUG","CUA","CUC","CUU","UUG","UUA"};
+    CODON_LISTS['M' - 'A'] = new String[]{"AUG"};
+    CODON_LISTS['N' - 'A'] = new String[]{"AAC","AAU"};
+    CODON_LISTS['P' - 'A'] = new String[]{"CCG","CCA","CCC","CCU"};
+    CODON_LISTS['Q' - 'A'] = new String[]{"CAG","CAA"};
+    CODON_LISTS['R' - 'A'] = new String[]{"AGG","AGA","CGG","CGA","CGC","CGU"};
+    CODON_LISTS['S' - 'A'] = new String[]{"AGC","AGU","UCG","UCA","UCC","UCU"};
+    CODON_LISTS['T' - 'A'] = new String[]{"ACG","ACA","ACC","ACU","UAC","UAU"};
+    CODON_LISTS['V' - 'A'] = new String[]{"GUG","GUA","GUC","GUU"};
+    CODON_LISTS['W' - 'A'] = new String[]{"UGG"};
+
+    java.util.Arrays.fill(CODON_SLOT, (byte) -1);
+    for(int i=0; i<CODON_LISTS.length; i++){
+      if(CODON_LISTS[i] == null){
+        CODON_LISTS[i] = NO_CODONS;
+        continue;
+      }
+      for(int j=0; j<CODON_LISTS[i].length; j++){
+        CODON_SLOT[codonIndex(CODON_LISTS[i][j], 0)] = (byte) j;
       }
     }
-    // If we ended up not finding all 3 characters, return NULL
-    return (char)0;
   }
-  public static String[] getCodonListForAminoAcid(char a){
+
+  /* returns the codon index of a 3 character string, -1 if it is not a valid codon */
+  public static int codonIndex(String s){
+    if(s.length()!=3) return -1;
+    return codonIndex(s.charAt(0), s.charAt(1), s.charAt(2));
+  }
+
+  /* given a codon index, returns the position of the codon inside the codon list of its amino acid.
+   * -1 for invalid and STOP codons */
+  public static int getCodonSlot(int index){
+    return index < 0 ? -1 : CODON_SLOT[index];
+  }
+
+  /* Same as getCodonListForAminoAcid, but returns the shared table without copying it.
+   * The returned array must not be modified */
+  static String[] sharedCodonListForAminoAcid(char a){
     a = Character.toUpperCase(a);
-    if(a == 'A') return new String[]{"GCG","GCA","GCC","GCU"};
-    else if(a == 'C') return new String[]{"UGC","UGU"};
-    else if(a == 'D') return new String[]{"GAC","GAU"};
-    else if(a == 'E') return new String[]{"GAG","GAA"};
-    else if(a == 'F') return new String[]{"UUC","UUU"};
-    else if(a == 'G') return new String[]{"GGG","GGA","GGC","GGU"};
-    else if(a == 'H') return new String[]{"CAC","CAU"};
-    else if(a == 'I') return new String[]{"AUA","AUC","AUU"};
-    else if(a == 'K') return new String[]{"AAG","AAA"};
-    else if(a == 'L') return new String[]{"CUG","CUA","CUC","CUU","UUG","UUA"};
-    else if(a == 'M') return new String[]{"AUG"};
-    else if(a == 'N') return new String[]{"AAC","AAU"};
-    else if(a == 'P') return new String[]{"CCG","CCA","CCC","CCU"};
-    else if(a == 'Q') return new String[]{"CAG","CAA"};
-    else if(a == 'R') return new String[]{"AGG","AGA","CGG","CGA","CGC","CGU"};
-    else if(a == 'S') return new String[]{"AGC","AGU","UCG","UCA","UCC","UCU"};
-    else if(a == 'T') return new String[]{"ACG","ACA","ACC","ACU","UAC","UAU"};
-    else if(a == 'V') return new String[]{"GUG","GUA","GUC","GUU"};
-    else if(a == 'W') return new String[]{"UGG"};
     // if character passed is not an amino acid, return an empty array
-    return new String[]{};
+    if(a < 'A' || a > 'Z') return NO_CODONS;
+    return CODON_LISTS[a - 'A'];
+  }
+
+  public static String[] getCodonListForAminoAcid(char a){
+    return sharedCodonListForAminoAcid(a).clone();
   }
 }
\ No newline at end of file
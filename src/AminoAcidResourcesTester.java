@@ -1,4 +1,16 @@
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
@@ -58,6 +70,39 @@ class AminoAcidResourcesTester{
     }
   }
 
+  @Test
+  public void codonOverloads(){
+    char[] rna = {'A','C','U','G'};
+    for(int i=0; i<4; i++){
+      for(int j=0; j<4; j++){
+        for(int k=0; k<4;k++){
+          String s = new String(new char[]{rna[i],rna[j],rna[k]});
+          char aa = AminoAcidResources.getAminoAcidFromCodon(s);
+          assertEquals(aa, AminoAcidResources.getAminoAcidFromCodon(rna[i], rna[j], rna[k]));
+          assertEquals(aa, AminoAcidResources.getAminoAcidFromCodon("x" + s.toLowerCase(), 1));
+          assertEquals(aa, AminoAcidResources.getAminoAcidFromCodon(("xx" + s).getBytes(), 2));
+        }
+      }
+    }
+    assertEquals((char)0, AminoAcidResources.getAminoAcidFromCodon("ANA"));
+    assertEquals((char)0, AminoAcidResources.getAminoAcidFromCodon("AC"));
+  }
+
+  @Test
+  public void codonSlots(){
+    char[] aa = {'A','C','D','E','F','G','H','I','K','L','M','N','P','Q','R','S','T','V','W'};
+    for(int i=0; i<aa.length; i++){
+      String[] codonList = AminoAcidResources.getCodonListForAminoAcid(aa[i]);
+      for(int l=0; l<codonList.length; l++){
+        assertEquals(l, AminoAcidResources.getCodonSlot(AminoAcidResources.codonIndex(codonList[l])));
+      }
+      //the public list is a copy, the shared table can not be modified through it
+      assertNotSame(AminoAcidResources.sharedCodonListForAminoAcid(aa[i]), codonList);
+    }
+    assertEquals(-1, AminoAcidResources.getCodonSlot(AminoAcidResources.codonIndex("UAA")));
+    assertEquals(0, AminoAcidResources.getCodonListForAminoAcid('*').length);
+  }
+
   /********************************************************************************************/
   /* Multiple test cases to test AminoAcidLL */
   /* Some combine methods to check the correct behavior of the program which improves the tests readability */
@@ -223,4 +268,631 @@ class AminoAcidResourcesTester{
     assertArrayEquals(expected, actual);
   }
 
+  /*
+   * The purpose of this test is to check that streaming the sequence through a Reader (with line breaks) gives the same list as the String version
+   * If the test passes it means the codons are read across buffer/line boundaries and the STOP is still respected
+   * If the test fails either the reader skipped or split codons incorrectly or the STOP was ignored
+   */
+  @Test
+  public void streamingReader() throws IOException {
+    AminoAcidLL head = AminoAcidLL.createFromRNASequence(new StringReader("GCUACGG\nCGGAGCUU\nCGGAGCUAGAUGUUU\n")); //[A,T,A,E,L,R,S,STOP,M,F]
+    AminoAcidLL expected = AminoAcidLL.createFromRNASequence("GCUACGGCGGAGCUUCGGAGCUAGAUGUUU");
+
+    assertArrayEquals(expected.aminoAcidList(), head.aminoAcidList());
+    assertArrayEquals(expected.aminoAcidCounts(), head.aminoAcidCounts());
+  }
+
+  /*
+   * The purpose of this test is to check that a trailing partial codon is ignored instead of breaking the translation
+   * If the test passes it means the cursor stops at the last complete codon
+   * If the test fails the cursor read past the end of the sequence
+   */
+  @Test
+  public void partialCodon(){
+    AminoAcidLL head = AminoAcidLL.createFromRNASequence(new StringBuilder("GCUGCAGC")); //[A,A,partial]
+    int[] expected = {2};
+
+    assertArrayEquals(expected, head.aminoAcidCounts());
+  }
+
+  /*
+   * The purpose of this test is to check that the flat CodonUsageProfile gives the same lists, counts and comparisons as the linked list
+   * If the test passes it means the profile counted the same codons, respected the STOP and converts back to the sorted linked list
+   * If the test fails either the codon counters, the per amino acid view or the conversion to/from AminoAcidLL is wrong
+   */
+  @Test
+  public void flatProfile(){
+    String rna1 = "GCUACGGCGGAGCUUCGGAGCUAGAUGUUU"; //[A,T,A,E,L,R,S,STOP,M,F]
+    String rna2 = "CUGGCAGAAUUGGCGGCU"; //[L,A,E,L,A,A]
+    AminoAcidLL sorted1 = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence(rna1));
+    AminoAcidLL sorted2 = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence(rna2));
+    CodonUsageProfile profile1 = CodonUsageProfile.createFromRNASequence(rna1);
+    CodonUsageProfile profile2 = CodonUsageProfile.fromAminoAcidLL(sorted2);
+
+    assertArrayEquals(sorted1.aminoAcidList(), profile1.toAminoAcidLL().aminoAcidList());
+    assertArrayEquals(sorted1.aminoAcidCounts(), profile1.toAminoAcidLL().aminoAcidCounts());
+    assertEquals(sorted1.aminoAcidCompare(sorted2), profile1.aminoAcidCompare(profile2));
+    assertEquals(sorted1.codonCompare(sorted2), profile1.codonCompare(profile2));
+    assertEquals(sorted1.codonCompare(sorted2), profile1.toAminoAcidLL().codonCompare(profile2.toAminoAcidLL()));
+    assertEquals(3, profile2.totalCount('A'));
+  }
+
+  /*
+   * The purpose of this test is to check that the parallel translation gives exactly the same list as the sequential one
+   * The sequences are split in many small chunks, with and without a STOP in the middle
+   * If the test fails either the chunks were not merged in order or codons after the first STOP were counted
+   */
+  @Test
+  public void parallelTranslation(){
+    Random random = new Random(42);
+    char[] rna = {'A','C','G','U'};
+    StringBuilder sequence = new StringBuilder();
+    for(int i=0; i<30000; i++){
+      String codon = "" + rna[random.nextInt(4)] + rna[random.nextInt(4)] + rna[random.nextInt(4)];
+      //keeps the STOP codons out, one is added later
+      if(AminoAcidResources.getAminoAcidFromCodon(codon) != '*') sequence.append(codon);
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+
+    AminoAcidLL expected = AminoAcidLL.createFromRNASequence(sequence);
+    AminoAcidLL actual = ParallelRNATranslator.createFromRNASequence(sequence, pool, 100);
+    assertArrayEquals(expected.aminoAcidList(), actual.aminoAcidList());
+    assertArrayEquals(expected.aminoAcidCounts(), actual.aminoAcidCounts());
+
+    sequence.insert(3 * 12345, "UGA");
+    expected = AminoAcidLL.createFromRNASequence(sequence);
+    actual = ParallelRNATranslator.createFromRNASequence(sequence, pool, 100);
+    assertArrayEquals(expected.aminoAcidList(), actual.aminoAcidList());
+    assertArrayEquals(expected.aminoAcidCounts(), actual.aminoAcidCounts());
+  }
+
+  /*
+   * The purpose of this test is to check that the batch profiler returns one profile per sequence, in input order
+   * The number of sequences in flight is smaller than the number of sequences so the back-pressure is used
+   * If the test fails the results were handed out in the wrong order or some were lost
+   */
+  @Test
+  public void batchProfiles() throws InterruptedException {
+    List<String> sequences = new ArrayList<>();
+    for(int i=0; i<50; i++){
+      sequences.add(i % 2 == 0 ? "GCUACGGAGCUUCGGAGCUAG" : "CGGGUGUCAGAUGCG");
+    }
+
+    try(BatchProfiler profiler = BatchProfiler.withThreads(3)){
+      List<AminoAcidLL> profiles = profiler.profileAll(sequences);
+      assertEquals(sequences.size(), profiles.size());
+      for(int i=0; i<sequences.size(); i++){
+        assertArrayEquals(AminoAcidLL.createFromRNASequence(sequences.get(i)).aminoAcidList(), profiles.get(i).aminoAcidList());
+      }
+    }
+  }
+
+  /*
+   * The purpose of this test is to check that the distance matrix holds the same values as aminoAcidCompare/codonCompare on every pair
+   * The matrix is computed both in the heap and in a memory-mapped file
+   * If the test fails either the flattened vectors or the packed triangle indexing is wrong
+   */
+  @Test
+  public void distanceMatrix() throws IOException {
+    String[] rna = {"GCUACGGAGCUUCGGAGCUAG", "CGGGUGUCAGAUGCG", "GCUUAUCACUGGCUG", "CUGGCAGAAUUGGCGGCU", "AAGGCUGCACUUUAA"};
+    List<AminoAcidLL> profiles = new ArrayList<>();
+    for(int i=0; i<rna.length; i++){
+      profiles.add(AminoAcidLL.sort(AminoAcidLL.createFromRNASequence(rna[i])));
+    }
+    Path file = Files.createTempFile("matrix", ".bin");
+
+    ProfileDistanceMatrix aminoAcids = ProfileDistanceMatrix.compute(profiles, ProfileDistanceMatrix.Metric.AMINO_ACID);
+    ProfileDistanceMatrix codons = ProfileDistanceMatrix.computeMapped(profiles, ProfileDistanceMatrix.Metric.CODON, file);
+    for(int i=0; i<rna.length; i++){
+      for(int j=0; j<rna.length; j++){
+        CodonUsageProfile a = CodonUsageProfile.fromAminoAcidLL(profiles.get(i));
+        CodonUsageProfile b = CodonUsageProfile.fromAminoAcidLL(profiles.get(j));
+        assertEquals(a.aminoAcidCompare(b), aminoAcids.get(i, j));
+        assertEquals(a.codonCompare(b), codons.get(i, j));
+      }
+    }
+    Files.deleteIfExists(file);
+  }
+
+  /*
+   * The purpose of this test is to check the compares when the smaller amino acid is the last one of the other list
+   * ([A,L,P] against [A,E,L,R,S,T] ends with P against R,S,T) and that merge/isSorted handle very long lists
+   * If the test passes the lists are walked together until both ends and long lists do not overflow the stack
+   * If the test fails one of the lists was not walked to its end or the methods are still recursive
+   */
+  @Test
+  public void iterativeMethods(){
+    AminoAcidLL sorted1 = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence("GCUACGGCGGAGCUUCGGAGCUAG")); //[A,T,A,E,L,R,S]
+    AminoAcidLL sorted2 = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence("CUGGCACCGUUGGCGGCU")); //[L,A,P,L,A,A]
+
+    assertEquals(7, sorted1.aminoAcidCompare(sorted2));
+    assertEquals(7, sorted2.aminoAcidCompare(sorted1));
+    assertEquals(9, sorted1.codonCompare(sorted2));
+
+    AminoAcidLL left = null;
+    AminoAcidLL right = null;
+    for(int i=0; i<200000; i++){
+      AminoAcidLL node = new AminoAcidLL('W');
+      if(i % 2 == 0){ node.next = left; left = node; }
+      else{ node.next = right; right = node; }
+    }
+    AminoAcidLL merged = AminoAcidLL.merge(left, right);
+    assertTrue(merged.isSorted());
+    assertEquals(200000, merged.aminoAcidList().length);
+  }
+
+  /*
+   * The purpose of this test is to check the exports that write into arrays/buffers given by the caller
+   * If the test passes the amino acids and counts are written at the right offset and the number written is returned
+   * If the test fails the exports wrote at the wrong position or returned the wrong number of elements
+   */
+  @Test
+  public void exportInto(){
+    AminoAcidLL head = AminoAcidLL.createFromRNASequence("UGUGGUUGCCCAUUUCCCUUACCU"); //[C,G,C,P,F,P,L,P]
+    char[] list = new char[7];
+    int[] counts = new int[7];
+    IntBuffer buffer = IntBuffer.allocate(5);
+
+    assertEquals(5, head.aminoAcidList(list, 2));
+    assertEquals(5, head.aminoAcidCounts(counts, 1));
+    assertEquals(5, head.aminoAcidCounts(buffer));
+    assertArrayEquals(new char[]{0,0,'C','G','P','F','L'}, list);
+    assertArrayEquals(new int[]{0,2,1,3,1,1,0}, counts);
+    assertArrayEquals(new int[]{2,1,3,1,1}, buffer.array());
+  }
+
+  /*
+   * The purpose of this test is to check that sort keeps nodes with the same amino acid in their original order (stable)
+   * and that an already sorted list is returned as it is
+   * If the test fails the nodes were relinked in the wrong order or a sorted list was rearranged
+   */
+  @Test
+  public void stableSort(){
+    char[] letters = {'W','A','M','A','C','W','A'};
+    AminoAcidLL[] nodes = new AminoAcidLL[letters.length];
+    for(int i=letters.length-1; i>=0; i--){
+      nodes[i] = new AminoAcidLL(letters[i]);
+      if(i < letters.length-1) nodes[i].next = nodes[i+1];
+    }
+
+    AminoAcidLL sorted = AminoAcidLL.sort(nodes[0]);
+    assertArrayEquals(new char[]{'A','A','A','C','M','W','W'}, sorted.aminoAcidList());
+    assertSame(nodes[1], sorted);
+    assertSame(nodes[3], sorted.next);
+    assertSame(nodes[6], sorted.next.next);
+    assertSame(nodes[0], sorted.next.next.next.next.next);
+    assertSame(sorted, AminoAcidLL.sort(sorted));
+    assertNull(AminoAcidLL.sort(null));
+  }
+
+  /*
+   * The purpose of this test is to check that building the list in letter order gives the same list as creating it and sorting it
+   * If the test passes the new nodes were inserted at the right place and the counts went to the existing nodes
+   * If the test fails either a node was inserted in the wrong place or a codon was not counted
+   */
+  @Test
+  public void sortedOnInsert(){
+    String[] rna = {"GCUACGGCGGAGCUUCGGAGCUAGAUGUUU", "UGUGGUUGCCCAUUUCCCUUACCU", "CUGGCACCGUUGGCGGCU", "GCUUAUCACUGGCUG"};
+    for(int i=0; i<rna.length; i++){
+      AminoAcidLL expected = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence(rna[i]));
+      AminoAcidLL actual = AminoAcidLL.createSortedFromRNASequence(rna[i]);
+
+      assertTrue(actual.isSorted());
+      assertArrayEquals(expected.aminoAcidList(), actual.aminoAcidList());
+      assertArrayEquals(expected.aminoAcidCounts(), actual.aminoAcidCounts());
+      assertEquals(0, expected.codonCompare(actual));
+    }
+  }
+
+  /*
+   * The purpose of this test is to check that every FASTA record is profiled like its sequence would be by createFromRNASequence
+   * The sequences are split over several lines, the second record has a STOP in the middle of a line
+   * If the test fails either the headers, the line breaks or the STOP were not handled correctly
+   */
+  @Test
+  public void fastaRecords() throws IOException {
+    Path file = Files.createTempFile("records", ".fa");
+    Files.write(file, ">first record\nCGGGUG\nUCAGAUGCG\n>second\r\nGCUACGGCGGAG\r\nCUUCGGAGCUAGAUGUUU\r\n".getBytes());
+    List<String> headers = new ArrayList<>();
+    List<AminoAcidLL> profiles = new ArrayList<>();
+
+    FastaProfileReader.forEachRecord(file, (header, profile) -> { headers.add(header); profiles.add(profile); });
+    Files.deleteIfExists(file);
+
+    assertEquals(Arrays.asList("first record", "second"), headers);
+    AminoAcidLL first = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence("CGGGUGUCAGAUGCG"));
+    AminoAcidLL second = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence("GCUACGGCGGAGCUUCGGAGCUAGAUGUUU"));
+    assertArrayEquals(first.aminoAcidList(), profiles.get(0).aminoAcidList());
+    assertEquals(0, first.codonCompare(profiles.get(0)));
+    assertArrayEquals(second.aminoAcidList(), profiles.get(1).aminoAcidList());
+    assertEquals(0, second.codonCompare(profiles.get(1)));
+  }
+
+  /*
+   * The purpose of this test is to check that the packed sequence keeps every character and decodes codons like the String version
+   * The sequence is longer than one 64-bit word (codons are split between words) and has an invalid base
+   * If the test fails either the packing/unpacking of the bases or the exceptions list is wrong
+   */
+  @Test
+  public void packedSequence(){
+    String rna = "GCUACGGCGGAGCUUCGGAGCUUCNGCGGCUGCACUUAUGAUGGCAGAUAGAUGUUU";
+    PackedRNASequence packed = new PackedRNASequence(rna);
+
+    assertEquals(rna, packed.toString());
+    for(int i=0; i+3<=rna.length(); i++){
+      assertEquals(AminoAcidResources.codonIndex(rna, i), packed.codonIndexAt(i));
+    }
+    assertThrows(IndexOutOfBoundsException.class, () -> packed.codonIndexAt(rna.length() - 2));
+    assertThrows(IndexOutOfBoundsException.class, () -> new PackedRNASequence("ACGUA").codonIndexAt(4));
+    AminoAcidLL expected = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence(rna));
+    assertArrayEquals(expected.aminoAcidList(), packed.toAminoAcidLL().aminoAcidList());
+    assertArrayEquals(expected.aminoAcidCounts(), packed.toAminoAcidLL().aminoAcidCounts());
+    assertEquals(0, expected.codonCompare(packed.toAminoAcidLL()));
+  }
+
+  /*
+   * The purpose of this test is to check that the single pass over all reading frames gives the same lists as translating
+   * every shifted sequence (and every shifted reverse complement) on its own
+   * If the test fails either a frame was read with the wrong alignment or a STOP was not handled in its own frame
+   */
+  @Test
+  public void readingFrames(){
+    String rna = "AUGGCUACGGCGUAAGAGCUUCGGAGCUAGAUGUUUCCAUUACGCUGAAGCU";
+    StringBuilder reverse = new StringBuilder();
+    for(int i=rna.length()-1; i>=0; i--){
+      reverse.append("UGCA".charAt("ACGU".indexOf(rna.charAt(i))));
+    }
+    ReadingFrameProfiler frames = ReadingFrameProfiler.profile(rna, true);
+
+    assertEquals(6, frames.frameCount());
+    for(int f=0; f<3; f++){
+      CodonUsageProfile forward = CodonUsageProfile.createFromRNASequence(rna.substring(f));
+      CodonUsageProfile backward = CodonUsageProfile.createFromRNASequence(reverse.substring(f));
+      assertEquals(0, forward.codonCompare(frames.codonUsage(f)));
+      assertEquals(0, backward.codonCompare(frames.codonUsage(3 + f)));
+    }
+    assertEquals(12, frames.stopPosition(0));
+
+    //the reverse frames reuse their profile after every STOP, clear resets the invalid count too
+    CodonUsageProfile cleared = CodonUsageProfile.createFromRNASequence("GCUNNN");
+    cleared.clear();
+    assertEquals(0, cleared.invalidCount());
+    assertEquals(0, cleared.count(AminoAcidResources.codonIndex("GCU")));
+  }
+
+  /*
+   * The purpose of this test is to check that reading continues after every STOP and each segment is profiled on its own
+   * The second scan requires an AUG to open a segment, so the codons before it are skipped
+   * If the test fails either the segment offsets are wrong, a STOP was counted or a segment was lost
+   */
+  @Test
+  public void orfSegments(){
+    String rna = "GCUACGUAAUAGGCUAUGGAGUGAUUUAUGCUU"; //[A,T,STOP,STOP,A,M,E,STOP,F,M,L]
+    List<String> segments = new ArrayList<>();
+
+    OrfSegmenter.forEachOrf(rna, false, (start, end, stopped, profile) ->
+        segments.add(start + "-" + end + " " + stopped + " " + new String(profile.aminoAcidList())));
+    assertEquals(Arrays.asList("0-6 true AT", "12-21 true AEM", "24-33 false FLM"), segments);
+
+    segments.clear();
+    OrfSegmenter.forEachOrf(rna, true, (start, end, stopped, profile) ->
+        segments.add(start + "-" + end + " " + stopped + " " + new String(profile.aminoAcidList())));
+    assertEquals(Arrays.asList("15-21 true EM", "27-33 false LM"), segments);
+  }
+
+  /*
+   * The purpose of this test is to check that the sliding window keeps the counts and the distances to a reference
+   * equal to a profile rebuilt from the last codons at every step
+   * If the test fails either a codon leaving the window was not taken back or a distance update is wrong
+   */
+  @Test
+  public void slidingWindow(){
+    String rna = "GCUACGGCGGAGCUUCGGAGCUAGAUGUUUCCAUUACGCUGAAGCUGCAGCGGCU";
+    CodonUsageProfile reference = CodonUsageProfile.createFromRNASequence("CUGGCAGAAUUGGCGGCU");
+    SlidingWindowProfile window = new SlidingWindowProfile(5);
+    window.setReference(reference);
+
+    for(int i=0; i+3<=rna.length(); i+=3){
+      window.addCodon(rna.substring(i, i+3));
+      CodonUsageProfile expected = new CodonUsageProfile();
+      for(int j=Math.max(0, i-12); j<=i; j+=3){
+        expected.addCodon(rna.substring(j, j+3));
+      }
+
+      assertEquals(Math.min(5, i/3 + 1), window.size());
+      assertEquals(0, expected.codonCompare(CodonUsageProfile.fromAminoAcidLL(window.toAminoAcidLL())));
+      assertEquals(expected.codonCompare(reference), window.codonCompare());
+      assertEquals(expected.aminoAcidCompare(reference), window.aminoAcidCompare());
+    }
+  }
+
+  /*
+   * The purpose of this test is to check adding, subtracting and scaling whole lists
+   * If the test passes the sorted lists were merged amino acid by amino acid and the codon counts combined
+   * If the test fails either an amino acid was lost while walking the lists or the counts were combined wrong
+   */
+  @Test
+  public void combineLists(){
+    AminoAcidLL sorted1 = AminoAcidLL.createSortedFromRNASequence("GCUACGGCGGAGCUUCGGAGCUAG"); //[A,T,A,E,L,R,S]
+    AminoAcidLL sorted2 = AminoAcidLL.createSortedFromRNASequence("CUGGCACCGUUGGCGGCU"); //[L,A,P,L,A,A]
+    AminoAcidLL both = AminoAcidLL.createSortedFromRNASequence("GCUACGGCGGAGCUUCGGAGCCUGGCACCGUUGGCGGCU");
+
+    AminoAcidLL sum = sorted1.add(sorted2);
+    assertArrayEquals(both.aminoAcidList(), sum.aminoAcidList());
+    assertEquals(0, both.codonCompare(sum));
+
+    AminoAcidLL difference = sum.subtract(sorted2);
+    assertArrayEquals(sorted1.aminoAcidList(), difference.aminoAcidList());
+    assertEquals(0, sorted1.codonCompare(difference));
+
+    assertArrayEquals(new int[]{6,3,3,3,3,3}, sorted1.scale(3).aminoAcidCounts());
+    //scaling by 0 empties the list the same way subtracting it from itself does
+    assertNull(sorted1.scale(0));
+    assertNull(sum.subtract(sum));
+    assertThrows(IllegalArgumentException.class, () -> sorted1.subtract(sorted2));
+  }
+
+  /*
+   * The purpose of this test is to check that profiles written in the binary format are read back with the same counts,
+   * both from a stream and from a memory-mapped profile store, and that the store compares profiles like the lists do
+   * If the test fails either the varint encoding, the offset table or the encoded compare is wrong
+   */
+  @Test
+  public void binaryProfiles() throws IOException {
+    String[] rna = {"GCUACGGAGCUUCGGAGCUAG", "CGGGUGUCAGAUGCG", "GCUUAUCACUGGCUG", "", "CUGGCAGAAUUGGCGGCU"};
+    Path file = Files.createTempFile("profiles", ".bin");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodonUsageProfile[] profiles = new CodonUsageProfile[rna.length];
+
+    try(ProfileStore.Writer writer = new ProfileStore.Writer(file)){
+      for(int i=0; i<rna.length; i++){
+        profiles[i] = CodonUsageProfile.createFromRNASequence(rna[i]);
+        profiles[i].setCount(0, profiles[i].count(0) + 200); //needs a 2 byte varint
+        writer.append(profiles[i]);
+        ProfileCodec.write(profiles[i], bytes);
+      }
+    }
+
+    ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+    ProfileStore store = ProfileStore.open(file);
+    assertEquals(rna.length, store.size());
+    for(int i=0; i<rna.length; i++){
+      assertArrayEquals(profiles[i].codonCounts(), ProfileCodec.read(in).codonCounts());
+      assertArrayEquals(profiles[i].codonCounts(), store.get(i).codonCounts());
+      for(int j=0; j<rna.length; j++){
+        assertEquals(profiles[i].codonCompare(profiles[j]), store.codonCompare(i, j));
+        assertEquals(profiles[i].aminoAcidCompare(profiles[j]), store.aminoAcidCompare(i, j));
+      }
+    }
+    assertNull(ProfileCodec.read(in));
+    Files.deleteIfExists(file);
+  }
+
+  /*
+   * The purpose of this test is to check that the nearest profiles found in the tree are the same as comparing the query
+   * with every profile, for both distances
+   * If the test fails the tree pruned a subtree that still had a closer profile
+   */
+  @Test
+  public void nearestProfiles(){
+    Random random = new Random(7);
+    char[] rna = {'A','C','G','U'};
+    List<AminoAcidLL> profiles = new ArrayList<>();
+    for(int p=0; p<300; p++){
+      StringBuilder sequence = new StringBuilder();
+      int length = 30 + random.nextInt(90);
+      for(int i=0; i<length; i++) sequence.append(rna[random.nextInt(4)]);
+      profiles.add(AminoAcidLL.createSortedFromRNASequence(sequence.toString().replace("UAA", "").replace("UAG", "").replace("UGA", "")));
+    }
+    AminoAcidLL query = profiles.get(17).scale(2);
+
+    for(ProfileDistanceMatrix.Metric metric : ProfileDistanceMatrix.Metric.values()){
+      ProfileIndex index = new ProfileIndex(profiles, metric);
+      ProfileIndex.Match[] tree = index.nearest(query, 5);
+      ProfileIndex.Match[] scan = index.nearestByScan(query, 5);
+
+      int[] expected = new int[profiles.size()];
+      for(int p=0; p<profiles.size(); p++){
+        expected[p] = metric == ProfileDistanceMatrix.Metric.CODON ? query.codonCompare(profiles.get(p)) : query.aminoAcidCompare(profiles.get(p));
+      }
+      Arrays.sort(expected);
+
+      assertEquals(5, tree.length);
+      for(int i=0; i<5; i++){
+        assertEquals(expected[i], tree[i].distance);
+        assertEquals(tree[i].index, scan[i].index);
+        assertEquals(tree[i].distance, scan[i].distance);
+      }
+      assertThrows(IllegalArgumentException.class, () -> index.nearest(query, 0));
+      assertThrows(IllegalArgumentException.class, () -> index.nearestByScan(query, 0));
+    }
+  }
+
+  /*
+   * The purpose of this test is to check that repeated sequences are served from the cache as the same read-only profile,
+   * and that the least recently used entry is evicted when the cache is full
+   * If the test fails either the hit/miss statistics, the eviction order or the shared profile is wrong
+   */
+  @Test
+  public void profileCache(){
+    ProfileCache cache = new ProfileCache(2);
+    CodonUsageProfile first = cache.get("GCUACGGAGCUUCGGAGCUAG");
+
+    assertSame(first, cache.get(new StringBuilder("GCUACGGAGCUUCGGAGCUAG")));
+    assertTrue(first.isReadOnly());
+    assertThrows(UnsupportedOperationException.class, () -> first.addCodon("GCU"));
+    assertThrows(UnsupportedOperationException.class, () -> first.setCount(0, 99));
+    first.codonCounts()[AminoAcidResources.codonIndex("GCU")] = 99; //a copy, the shared counts do not change
+    assertArrayEquals(AminoAcidLL.createSortedFromRNASequence("GCUACGGAGCUUCGGAGCUAG").aminoAcidCounts(), cache.getAminoAcidLL("GCUACGGAGCUUCGGAGCUAG").aminoAcidCounts());
+
+    cache.get("CGGGUGUCAGAUGCG");
+    cache.get("GCUACGGAGCUUCGGAGCUAG");
+    cache.get("GCUUAUCACUGGCUG"); //evicts CGGGUGUCAGAUGCG
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.evictions());
+    assertSame(first, cache.get("GCUACGGAGCUUCGGAGCUAG"));
+    assertEquals(4, cache.hits());
+    assertEquals(3, cache.misses());
+  }
+
+  /*
+   * The purpose of this test is to check the counters reported by the hot paths when metrics are installed
+   * The sequence has an invalid codon and a STOP, the list is sorted and compared
+   * If the test fails one of the hooks reported the wrong codon/invalid/STOP/node numbers or was not called
+   */
+  @Test
+  public void profilingMetrics(){
+    ProfilingStats stats = new ProfilingStats();
+    Metrics.install(stats);
+    try{
+      String rna = "UGUGGUNNNUGCCCAUUUUAACCU"; //[C,G,invalid,C,P,F,STOP,P]
+      AminoAcidLL head = AminoAcidLL.createFromRNASequence(rna);
+      AminoAcidLL sorted = AminoAcidLL.sort(head);
+      sorted.codonCompare(sorted);
+      //the flat and parallel paths report the same ingest
+      CodonUsageProfile profile = CodonUsageProfile.createFromRNASequence(rna);
+      profile.aminoAcidCompare(profile);
+      ParallelRNATranslator.createFromRNASequence(rna, ForkJoinPool.commonPool(), 2);
+    }
+    finally{
+      Metrics.install(null);
+    }
+
+    assertEquals(3, stats.getIngests());
+    assertEquals(3 * 6, stats.getCodons());
+    assertEquals(3 * 1, stats.getInvalidCodons());
+    assertEquals(3, stats.getStops());
+    assertEquals(18, stats.getLastStopPosition());
+    assertEquals(3 * 5, stats.getNodes());
+    assertEquals(1, stats.getSorts());
+    assertEquals(5, stats.getSortNodes());
+    assertEquals(2, stats.getCompares());
+    assertTrue(stats.getSortRelinks() > 0);
+  }
+
+  /*
+   * The purpose of this test is to check that counting codons from bytes (Vector API path when it is available,
+   * scalar loop otherwise) gives the same list as createFromRNASequence followed by sort
+   * The sequence spans several blocks, has lower case and invalid bases and a STOP near the end
+   * If the test fails either the byte classification, the codon indexes or the STOP handling differs
+   */
+  @Test
+  public void vectorCounting(){
+    Random random = new Random(3);
+    char[] rna = {'A','C','G','U','a','c','g','u'};
+    StringBuilder sequence = new StringBuilder();
+    for(int i=0; i<20000; i++){
+      String codon = "" + rna[random.nextInt(8)] + rna[random.nextInt(8)] + rna[random.nextInt(8)];
+      if(AminoAcidResources.getAminoAcidFromCodon(codon) != '*') sequence.append(codon);
+    }
+    sequence.setCharAt(300, 'N');
+    sequence.append("UAGGCU");
+    byte[] bytes = sequence.toString().getBytes();
+
+    AminoAcidLL expected = AminoAcidLL.sort(AminoAcidLL.createFromRNASequence(sequence));
+    AminoAcidLL actual = VectorCodonCounter.createAminoAcidLL(bytes);
+    assertArrayEquals(expected.aminoAcidList(), actual.aminoAcidList());
+    assertArrayEquals(expected.aminoAcidCounts(), actual.aminoAcidCounts());
+    assertEquals(0, expected.codonCompare(actual));
+    assertArrayEquals(VectorCodonCounter.scalar(bytes, 0, bytes.length).codonCounts(), VectorCodonCounter.createFromRNASequence(bytes).codonCounts());
+  }
+
+  /*
+   * The purpose of this test is to check that profiles stored off-heap are read back through the views
+   * with the same lists, counts and comparisons as the sorted linked lists
+   * If the test fails either the slab position of a profile or the per amino acid view is wrong
+   */
+  @Test
+  public void profileArena(){
+    String[] rna = {"GCUACGGAGCUUCGGAGCUAG", "CGGGUGUCAGAUGCG", "GCUUAUCACUGGCUG", "CUGGCAGAAUUGGCGGCU"};
+    ProfileArena arena = new ProfileArena();
+    AminoAcidLL[] lists = new AminoAcidLL[rna.length];
+    for(int i=0; i<rna.length; i++){
+      lists[i] = AminoAcidLL.createSortedFromRNASequence(rna[i]);
+      assertEquals(i, arena.add(lists[i]));
+    }
+
+    ProfileArena.View a = arena.view();
+    ProfileArena.View b = arena.view();
+    assertEquals(rna.length, arena.size());
+    for(int i=0; i<rna.length; i++){
+      a.at(i);
+      assertArrayEquals(lists[i].aminoAcidList(), a.aminoAcidList());
+      assertArrayEquals(lists[i].aminoAcidCounts(), a.aminoAcidCounts());
+      assertEquals(0, lists[i].codonCompare(a.toAminoAcidLL()));
+      for(int j=0; j<rna.length; j++){
+        assertEquals(lists[i].codonCompare(lists[j]), a.codonCompare(b.at(j)));
+        assertEquals(lists[i].aminoAcidCompare(lists[j]), a.aminoAcidCompare(b.at(j)));
+      }
+    }
+  }
+
+  /*
+   * The purpose of this test is to check that several threads counting codons into the same concurrent profile
+   * lose no increments, and that the snapshot is the same list as translating the whole sequence
+   * If the test fails an increment was lost or the snapshot does not match the codon counts
+   */
+  @Test
+  public void concurrentProfile() throws InterruptedException {
+    String rna = "GCUACGGCGGAGCUUCGGAGCCUGGCACCGUUGGCGGCU";
+    ConcurrentCodonProfile profile = new ConcurrentCodonProfile();
+    Thread[] threads = new Thread[4];
+    for(int t=0; t<threads.length; t++){
+      threads[t] = new Thread(() -> {
+        for(int repeat=0; repeat<1000; repeat++){
+          for(int i=0; i+3<=rna.length(); i+=3) profile.addCodon(rna.substring(i, i+3));
+        }
+      });
+      threads[t].start();
+    }
+    for(int t=0; t<threads.length; t++){
+      threads[t].join();
+    }
+
+    AminoAcidLL expected = AminoAcidLL.createSortedFromRNASequence(rna).scale(4000);
+    assertArrayEquals(expected.aminoAcidList(), profile.toAminoAcidLL().aminoAcidList());
+    assertEquals(0, expected.codonCompare(profile.toAminoAcidLL()));
+    assertEquals(8000L, profile.snapshotCounts()[AminoAcidResources.codonIndex("GCU")]);
+  }
+
+  /*
+   * The purpose of this test is to check that snapshots taken while threads are counting are consistent cuts
+   * Every producer counts ACG before GCU, so no snapshot can hold more GCU than ACG
+   * If the test fails a snapshot read the counters at different times (a torn cut)
+   */
+  @Test
+  public void consistentSnapshot() throws InterruptedException {
+    int first = AminoAcidResources.codonIndex("ACG");
+    int second = AminoAcidResources.codonIndex("GCU");
+    ConcurrentCodonProfile profile = new ConcurrentCodonProfile();
+    Thread[] threads = new Thread[4];
+    for(int t=0; t<threads.length; t++){
+      threads[t] = new Thread(() -> {
+        for(int repeat=0; repeat<200000; repeat++){
+          profile.addCodon(first);
+          profile.addCodon(second);
+        }
+      });
+      threads[t].start();
+    }
+
+    for(int i=0; i<2000; i++){
+      long[] snapshot = profile.snapshotCounts();
+      assertTrue(snapshot[first] >= snapshot[second]);
+    }
+    for(int t=0; t<threads.length; t++){
+      threads[t].join();
+    }
+    long[] snapshot = profile.snapshotCounts();
+    assertEquals(800000L, snapshot[first]);
+    assertEquals(800000L, snapshot[second]);
+
+    //a call that fails does not leave an increment behind that snapshots would wait for
+    assertThrows(NullPointerException.class, () -> profile.add(null));
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> profile.addCodon(64));
+    profile.add(CodonUsageProfile.createFromRNASequence("ACGNNN"));
+    assertEquals(800001L, profile.snapshotCounts()[first]);
+    assertEquals(1L, profile.invalidCount());
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/* Profiles many RNA sequences (one AminoAcidLL each) on a shared executor.
+ * At most maxInFlight sequences are being translated or waiting to be handed out at any time,
+ * so a long stream of sequences is processed with bounded memory. Results are handed out in input order. */
+class BatchProfiler implements AutoCloseable {
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int maxInFlight;
+
+  /* Uses the given executor, which is not shut down by close() */
+  BatchProfiler(ExecutorService executor, int maxInFlight) {
+    this(executor, maxInFlight, false);
+  }
+
+  private BatchProfiler(ExecutorService executor, int maxInFlight, boolean ownsExecutor) {
+    if (maxInFlight < 1)
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+    this.ownsExecutor = ownsExecutor;
+  }
+
+  /********************************************************************************************/
+  /* Profiler with its own pool of platform threads */
+  public static BatchProfiler withThreads(int threads) {
+    return new BatchProfiler(Executors.newFixedThreadPool(threads), 4 * threads, true);
+  }
+
+  /* Profiler that runs every sequence on its own virtual thread, when the JDK has them (21+).
+   * Falls back to one platform thread per core otherwise */
+  public static BatchProfiler withVirtualThreads(int maxInFlight) {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return new BatchProfiler((ExecutorService) factory.invoke(null), maxInFlight, true);
+    }
+    catch (ReflectiveOperationException e) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      return new BatchProfiler(Executors.newFixedThreadPool(threads), maxInFlight, true);
+    }
+  }
+
+  /********************************************************************************************/
+  /* Translates every sequence and passes the profiles to the sink, in input order.
+   * Stops submitting work while maxInFlight results are pending */
+  public void profileEach(Iterator<? extends CharSequence> sequences, Consumer<? super AminoAcidLL> sink)
+      throws InterruptedException {
+    ArrayDeque<Future<AminoAcidLL>> pending = new ArrayDeque<>();
+
+    try {
+      while (sequences.hasNext()) {
+        //back-pressure: waits for the oldest result before submitting more
+        if (pending.size() == maxInFlight)
+          sink.accept(await(pending.poll()));
+
+        CharSequence sequence = sequences.next();
+        pending.add(executor.submit(() -> AminoAcidLL.createFromRNASequence(sequence)));
+      }
+      while (!pending.isEmpty()) {
+        sink.accept(await(pending.poll()));
+      }
+    }
+    finally {
+      //only left over when the sink or a translation failed
+      for (Future<AminoAcidLL> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  public void profileEach(Stream<? extends CharSequence> sequences, Consumer<? super AminoAcidLL> sink)
+      throws InterruptedException {
+    profileEach(sequences.iterator(), sink);
+  }
+
+  /* Translates all of the sequences, the profiles are in the same order as the sequences */
+  public List<AminoAcidLL> profileAll(Collection<? extends CharSequence> sequences) throws InterruptedException {
+    List<AminoAcidLL> profiles = new ArrayList<>(sequences.size());
+    profileEach(sequences.iterator(), profiles::add);
+    return profiles;
+  }
+
+  /* helper method that waits for a result and rethrows the failure of the translation */
+  private static AminoAcidLL await(Future<AminoAcidLL> future) throws InterruptedException {
+    try {
+      return future.get();
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /********************************************************************************************/
+  /* Shuts down the executor if this profiler created it */
+  @Override
+  public void close() {
+    if (ownsExecutor)
+      executor.shutdown();
+  }
+}
@@ -0,0 +1,260 @@
+/* Flat codon usage profile: one counter per codon (64) instead of a linked list of amino acids.
+ * Adding a codon is a single array write, the per amino acid view is derived from the codon counts.
+ * Converts to and from AminoAcidLL so the list methods (aminoAcidList, aminoAcidCompare...) keep working. */
+class CodonUsageProfile {
+  /* the amino acids, in alphanumeric order */
+  static final char[] AMINO_ACIDS = {'A','C','D','E','F','G','H','I','K','L','M','N','P','Q','R','S','T','V','W'};
+
+  /* codon indexes of every amino acid, in the same order as its codon list, indexed like AMINO_ACIDS */
+  static final int[][] CODON_INDEXES = new int[AMINO_ACIDS.length][];
+
+  /* position in AMINO_ACIDS of the amino acid of every codon, -1 for the STOP codons */
+  private static final byte[] AMINO_ACID_POSITION = new byte[64];
+
+  static {
+    java.util.Arrays.fill(AMINO_ACID_POSITION, (byte) -1);
+    for (int i = 0; i < AMINO_ACIDS.length; i++) {
+      String[] codons = AminoAcidResources.sharedCodonListForAminoAcid(AMINO_ACIDS[i]);
+      CODON_INDEXES[i] = new int[codons.length];
+      for (int j = 0; j < codons.length; j++) {
+        CODON_INDEXES[i][j] = AminoAcidResources.codonIndex(codons[j]);
+        AMINO_ACID_POSITION[CODON_INDEXES[i][j]] = (byte) i;
+      }
+    }
+  }
+
+  /* position in AMINO_ACIDS of the amino acid of a codon, -1 for invalid and STOP codons */
+  static int aminoAcidPosition(int codonIndex) {
+    return codonIndex < 0 ? -1 : AMINO_ACID_POSITION[codonIndex];
+  }
+
+  /* codon usage counts, indexed by codon index (see AminoAcidResources.codonIndex) */
+  private final int[] counts = new int[64];
+  /* number of invalid codons read, they do not belong to any amino acid */
+  private int invalidCount;
+  /* set on profiles that are shared (see immutableCopy), their counts can not be changed */
+  private boolean readOnly;
+
+  /* Returns a copy that can be shared: adding or removing codons throws UnsupportedOperationException */
+  public CodonUsageProfile immutableCopy() {
+    CodonUsageProfile copy = new CodonUsageProfile();
+    System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+    copy.invalidCount = invalidCount;
+    copy.readOnly = true;
+    return copy;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /********************************************************************************************/
+  /* number of times the codon was counted */
+  public int count(int codonIndex) {
+    return counts[codonIndex];
+  }
+
+  /* number of invalid codons read */
+  public int invalidCount() {
+    return invalidCount;
+  }
+
+  /* copy of the codon counts, indexed by codon index */
+  public int[] codonCounts() {
+    return counts.clone();
+  }
+
+  /* Sets the count of a codon, used when a profile is decoded or copied from another representation */
+  void setCount(int codonIndex, int count) {
+    checkWritable();
+    counts[codonIndex] = count;
+  }
+
+  void setInvalidCount(int count) {
+    checkWritable();
+    invalidCount = count;
+  }
+
+  /********************************************************************************************/
+  /* Counts a codon. Invalid codons are only added to invalidCount and STOP codons are not counted,
+   * the same way AminoAcidLL never counts them */
+  void addCodon(int codonIndex) {
+    checkWritable();
+    if (codonIndex < 0)
+      invalidCount++;
+    else if (AminoAcidResources.getCodonSlot(codonIndex) >= 0)
+      counts[codonIndex]++;
+  }
+
+  public void addCodon(String inCodon) {
+    addCodon(AminoAcidResources.codonIndex(inCodon));
+  }
+
+  /* Takes back a codon that was added with addCodon */
+  void removeCodon(int codonIndex) {
+    checkWritable();
+    if (codonIndex < 0)
+      invalidCount--;
+    else if (AminoAcidResources.getCodonSlot(codonIndex) >= 0)
+      counts[codonIndex]--;
+  }
+
+  /* Sets every counter back to 0, so the profile can be reused for the next sequence */
+  void clear() {
+    checkWritable();
+    java.util.Arrays.fill(counts, 0);
+    invalidCount = 0;
+  }
+
+  private void checkWritable() {
+    if (readOnly)
+      throw new UnsupportedOperationException("shared profile can not be modified");
+  }
+
+  /********************************************************************************************/
+  /* Same as AminoAcidLL.createFromRNASequence: translation stops at the first STOP codon */
+  public static CodonUsageProfile createFromRNASequence(CharSequence inSequence) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    CodonUsageProfile profile = new CodonUsageProfile();
+    int i = 0;
+
+    for (; i + 3 <= inSequence.length(); i += 3) {
+      int codonIndex = AminoAcidResources.codonIndex(inSequence, i);
+      if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
+        break;
+      profile.addCodon(codonIndex);
+    }
+
+    if (metrics != null)
+      profile.reportIngest(metrics, start, i + 3 <= inSequence.length());
+    return profile;
+  }
+
+  /* helper method that reports this profile as one translated sequence. Every codon that was read is either counted
+   * or invalid, so the STOP (if the translation stopped) is right after them */
+  void reportIngest(ProfilingMetrics metrics, long start, boolean stopped) {
+    long codons = codonsRead();
+    //the nodes toAminoAcidLL would build
+    int nodes = invalidCount > 0 ? 1 : 0;
+    for (int i = 0; i < AMINO_ACIDS.length; i++) {
+      if (totalCountAt(i) > 0)
+        nodes++;
+    }
+    metrics.ingest(codons, invalidCount, stopped ? 3 * codons : -1, nodes, System.nanoTime() - start);
+  }
+
+  /* number of codons read: the counted ones and the invalid ones */
+  long codonsRead() {
+    long codons = invalidCount;
+    for (int count : counts) {
+      codons += count;
+    }
+    return codons;
+  }
+
+  /********************************************************************************************/
+  /* Copies the codon counts of a linked list. The list only has a NULL node for invalid codons
+   * (not how many there were), so invalidCount is 1 when it has one */
+  public static CodonUsageProfile fromAminoAcidLL(AminoAcidLL inList) {
+    CodonUsageProfile profile = new CodonUsageProfile();
+
+    for (AminoAcidLL node = inList; node != null; node = node.next) {
+      if (node.aminoAcid == (char)0) {
+        profile.invalidCount = Math.max(profile.invalidCount, 1);
+        continue;
+      }
+      for (int i = 0; i < node.codons.length; i++) {
+        profile.counts[AminoAcidResources.codonIndex(node.codons[i])] += node.counts[i];
+      }
+    }
+    return profile;
+  }
+
+  /********************************************************************************************/
+  /* Builds a sorted linked list holding the amino acids that were used.
+   * If invalid codons were read, the list starts with a NULL node like createFromRNASequence + sort */
+  public AminoAcidLL toAminoAcidLL() {
+    AminoAcidLL head = null;
+    AminoAcidLL tail = null;
+
+    if (invalidCount > 0) {
+      head = new AminoAcidLL((char)0);
+      tail = head;
+    }
+
+    for (int i = 0; i < AMINO_ACIDS.length; i++) {
+      if (totalCountAt(i) == 0)
+        continue;
+
+      AminoAcidLL node = new AminoAcidLL(AMINO_ACIDS[i]);
+      for (int j = 0; j < CODON_INDEXES[i].length; j++) {
+        node.counts[j] = counts[CODON_INDEXES[i][j]];
+      }
+
+      if (head == null)
+        head = node;
+      else
+        tail.next = node;
+      tail = node;
+    }
+    return head;
+  }
+
+  /********************************************************************************************/
+  /* total number of codons counted for the amino acid at position i of AMINO_ACIDS */
+  private int totalCountAt(int i) {
+    int sum = 0;
+    for (int j = 0; j < CODON_INDEXES[i].length; j++) {
+      sum += counts[CODON_INDEXES[i][j]];
+    }
+    return sum;
+  }
+
+  /* total number of times the amino acid is used, 0 if it is not an amino acid */
+  public int totalCount(char aminoAcid) {
+    for (int i = 0; i < AMINO_ACIDS.length; i++) {
+      if (AMINO_ACIDS[i] == Character.toUpperCase(aminoAcid))
+        return totalCountAt(i);
+    }
+    return 0;
+  }
+
+  /* total counts of all of the amino acids, indexed like AMINO_ACIDS */
+  public int[] aminoAcidTotals() {
+    int[] totals = new int[AMINO_ACIDS.length];
+    for (int i = 0; i < AMINO_ACIDS.length; i++) {
+      totals[i] = totalCountAt(i);
+    }
+    return totals;
+  }
+
+  /********************************************************************************************/
+  /* Differences in **Amino Acid** counts, same result as AminoAcidLL.aminoAcidCompare on the sorted lists */
+  public int aminoAcidCompare(CodonUsageProfile inProfile) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    int diff = 0;
+    for (int i = 0; i < AMINO_ACIDS.length; i++) {
+      diff += Math.abs(totalCountAt(i) - inProfile.totalCountAt(i));
+    }
+
+    if (metrics != null)
+      metrics.compare(System.nanoTime() - start);
+    return diff;
+  }
+
+  /* Differences in codon counts, same result as AminoAcidLL.codonCompare on the sorted lists */
+  public int codonCompare(CodonUsageProfile inProfile) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    int diff = 0;
+    for (int i = 0; i < counts.length; i++) {
+      diff += Math.abs(counts[i] - inProfile.counts[i]);
+    }
+
+    if (metrics != null)
+      metrics.compare(System.nanoTime() - start);
+    return diff;
+  }
+}
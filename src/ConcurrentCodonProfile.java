@@ -0,0 +1,133 @@
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Codon usage profile that many threads can count into at once.
+ * Every codon has its own LongAdder, so threads counting different codons never touch the same counter, and
+ * threads counting the same codon are spread over the adder's cells (a cell update only retries its CAS when
+ * another thread updated that cell at the same time). Counts are longs (no overflow past Integer.MAX_VALUE).
+ * Snapshots are consistent cuts: the counters belong to a generation, a snapshot retires the current generation
+ * (new increments go to a fresh one), waits for the increments that already started in it and adds it to the totals
+ * of the older generations. A snapshot therefore holds every increment that finished before it started, none that
+ * started after it, and if it holds an increment it holds all of the increments the same thread made before it.
+ * STOP codons are not counted, like in CodonUsageProfile. */
+class ConcurrentCodonProfile {
+  private volatile Generation current = new Generation();
+  /* codon counts of the retired generations, invalid count last. Guarded by this */
+  private final long[] totals = new long[65];
+
+  /********************************************************************************************/
+  public void addCodon(int codonIndex) {
+    if (codonIndex >= 0 && AminoAcidResources.getCodonSlot(codonIndex) < 0)
+      return;
+
+    //exited is counted even if the update fails, a snapshot would wait for it forever
+    Generation generation = enter();
+    try {
+      if (codonIndex < 0)
+        generation.invalidCount.increment();
+      else
+        generation.counts[codonIndex].increment();
+    }
+    finally {
+      generation.exited.increment();
+    }
+  }
+
+  public void addCodon(String inCodon) {
+    addCodon(AminoAcidResources.codonIndex(inCodon));
+  }
+
+  /* adds all of the counts of a profile, e.g. one a thread counted on its own. A snapshot holds all of them or none */
+  public void add(CodonUsageProfile profile) {
+    //the counts are read before entering, so a bad profile fails without touching the generation
+    Objects.requireNonNull(profile, "profile");
+    int[] added = profile.codonCounts();
+    int invalid = profile.invalidCount();
+
+    Generation generation = enter();
+    try {
+      for (int i = 0; i < added.length; i++) {
+        if (added[i] != 0)
+          generation.counts[i].add(added[i]);
+      }
+      generation.invalidCount.add(invalid);
+    }
+    finally {
+      generation.exited.increment();
+    }
+  }
+
+  /* helper method that registers an increment in the current generation, the caller counts exited when it is done.
+   * A generation that was retired between reading it and entering it is left again, so a snapshot that did not
+   * see the entry can not miss the increment */
+  private Generation enter() {
+    while (true) {
+      Generation generation = current;
+      generation.entered.increment();
+      if (generation == current)
+        return generation;
+      generation.exited.increment();
+    }
+  }
+
+  /********************************************************************************************/
+  /* the codon counts, indexed by codon index */
+  public long[] snapshotCounts() {
+    long[] snapshot = new long[64];
+    System.arraycopy(snapshot(), 0, snapshot, 0, 64);
+    return snapshot;
+  }
+
+  public long invalidCount() {
+    return snapshot()[64];
+  }
+
+  /* Copies a snapshot of the counts into a CodonUsageProfile.
+   * Throws ArithmeticException if a count does not fit in an int */
+  public CodonUsageProfile toCodonUsageProfile() {
+    CodonUsageProfile profile = new CodonUsageProfile();
+    long[] snapshot = snapshot();
+    for (int i = 0; i < 64; i++) {
+      profile.setCount(i, Math.toIntExact(snapshot[i]));
+    }
+    profile.setInvalidCount(Math.toIntExact(snapshot[64]));
+    return profile;
+  }
+
+  /* sorted linked list of a snapshot of the counts. Throws ArithmeticException if a count does not fit in an int */
+  public AminoAcidLL toAminoAcidLL() {
+    return toCodonUsageProfile().toAminoAcidLL();
+  }
+
+  /* helper method that retires the current generation and returns the totals, invalid count last */
+  private synchronized long[] snapshot() {
+    Generation retired = current;
+    current = new Generation();
+
+    //exited is read first: an increment whose exit is seen has its entry seen too, so equal sums mean none is left
+    while (retired.exited.sum() != retired.entered.sum()) {
+      Thread.yield();
+    }
+
+    for (int i = 0; i < 64; i++) {
+      totals[i] += retired.counts[i].sum();
+    }
+    totals[64] += retired.invalidCount.sum();
+    return totals.clone();
+  }
+
+  /********************************************************************************************/
+  /* the counters of one generation, and how many increments entered and left it */
+  private static final class Generation {
+    final LongAdder[] counts = new LongAdder[64];
+    final LongAdder invalidCount = new LongAdder();
+    final LongAdder entered = new LongAdder();
+    final LongAdder exited = new LongAdder();
+
+    Generation() {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/* Profiles the records of a FASTA (or raw RNA) file without loading it into Strings.
+ * The file is memory-mapped in windows of 1GB and the codons are decoded straight from the mapped bytes.
+ * Header lines ('>') start a new record, line breaks and other whitespace are skipped and
+ * translation of a record stops at its first STOP codon, like AminoAcidLL.createFromRNASequence.
+ * A file without any header is a single record with an empty header. */
+class FastaProfileReader {
+  /* receives every record of the file, the profile is sorted (null when the record has no codons) */
+  interface RecordConsumer {
+    void accept(String header, AminoAcidLL profile);
+  }
+
+  private static final long WINDOW = 1L << 30;
+
+  private final RecordConsumer consumer;
+  private final StringBuilder header = new StringBuilder();
+  private CodonUsageProfile profile = new CodonUsageProfile();
+  private boolean inRecord;
+  private boolean inHeader;
+  private boolean atLineStart = true;
+  private boolean stopped;
+  //reporting of the current record, see Metrics
+  private final ProfilingMetrics metrics = Metrics.current();
+  private long recordStart;
+  //the codon being read: its bases so far, and whether one of them is invalid
+  private int codon;
+  private int filled;
+  private boolean invalidBase;
+
+  private FastaProfileReader(RecordConsumer consumer) {
+    this.consumer = consumer;
+    recordStart = metrics != null ? System.nanoTime() : 0;
+  }
+
+  /********************************************************************************************/
+  /* Reads the whole file, passing every record to the consumer in file order */
+  public static void forEachRecord(Path file, RecordConsumer consumer) throws IOException {
+    FastaProfileReader reader = new FastaProfileReader(consumer);
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      for (long position = 0; position < size; position += WINDOW) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+          reader.read(buffer.get(i));
+        }
+      }
+    }
+    reader.endRecord();
+  }
+
+  /********************************************************************************************/
+  /* helper method that handles one byte of the file */
+  private void read(byte b) {
+    if (b == '\n' || b == '\r') {
+      inHeader = false;
+      atLineStart = true;
+      return;
+    }
+
+    //a header line starts a new record
+    if (atLineStart && b == '>') {
+      endRecord();
+      inRecord = true;
+      inHeader = true;
+      atLineStart = false;
+      return;
+    }
+    atLineStart = false;
+
+    if (inHeader) {
+      header.append((char) (b & 0xFF));
+      return;
+    }
+    if (stopped || b == ' ' || b == '\t')
+      return;
+
+    inRecord = true;
+    int base = AminoAcidResources.baseIndex((char) b);
+    invalidBase |= base < 0;
+    codon = (codon << 2) | (base & 3);
+    if (++filled < 3)
+      return;
+
+    int codonIndex = invalidBase ? -1 : codon;
+    if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
+      stopped = true;
+    else
+      profile.addCodon(codonIndex);
+
+    codon = 0;
+    filled = 0;
+    invalidBase = false;
+  }
+
+  /* helper method that hands out the current record (if there is one) and resets the state.
+   * A trailing partial codon is ignored */
+  private void endRecord() {
+    if (inRecord) {
+      if (metrics != null)
+        profile.reportIngest(metrics, recordStart, stopped);
+      consumer.accept(header.toString().trim(), profile.toAminoAcidLL());
+    }
+
+    header.setLength(0);
+    profile = new CodonUsageProfile();
+    inRecord = false;
+    stopped = false;
+    codon = 0;
+    filled = 0;
+    invalidBase = false;
+    if (metrics != null)
+      recordStart = System.nanoTime();
+  }
+}
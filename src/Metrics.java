@@ -0,0 +1,18 @@
+/* Holds the ProfilingMetrics the hot paths report to. Reporting is off (null) by default:
+ * the hot paths then only read this one field and skip all of the timing and counting. */
+final class Metrics {
+  private static volatile ProfilingMetrics current;
+
+  private Metrics() {
+  }
+
+  /* starts reporting to metrics, null turns reporting off */
+  public static void install(ProfilingMetrics metrics) {
+    current = metrics;
+  }
+
+  /* the installed metrics, null when reporting is off */
+  static ProfilingMetrics current() {
+    return current;
+  }
+}
@@ -0,0 +1,44 @@
+/* Splits a sequence into open reading frames in one scan of frame 0, without creating substrings.
+ * Unlike AminoAcidLL.createFromRNASequence, reading continues after a STOP codon: every STOP ends the current
+ * segment, which is handed out with its own profile, and the next segment starts after it.
+ * With requireStart, a segment only starts at an AUG (start) codon, which is counted in it. */
+class OrfSegmenter {
+  /* receives every segment: start is the position of its first codon, end the position right after its last
+   * codon (where its STOP codon starts when stopped is true). The profile is a sorted list */
+  interface OrfConsumer {
+    void accept(int start, int end, boolean stopped, AminoAcidLL profile);
+  }
+
+  private static final int START_CODON = AminoAcidResources.codonIndex("AUG");
+
+  /********************************************************************************************/
+  public static void forEachOrf(CharSequence inSequence, boolean requireStart, OrfConsumer consumer) {
+    CodonUsageProfile profile = null;
+    int start = 0;
+    int i = 0;
+
+    for (; i + 3 <= inSequence.length(); i += 3) {
+      int codonIndex = AminoAcidResources.codonIndex(inSequence, i);
+
+      if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*') {
+        if (profile != null)
+          consumer.accept(start, i, true, profile.toAminoAcidLL());
+        profile = null;
+        continue;
+      }
+
+      //no segment is open: one starts here, unless an AUG is required and this is not one
+      if (profile == null) {
+        if (requireStart && codonIndex != START_CODON)
+          continue;
+        profile = new CodonUsageProfile();
+        start = i;
+      }
+      profile.addCodon(codonIndex);
+    }
+
+    //the last segment has no STOP
+    if (profile != null)
+      consumer.accept(start, i, false, profile.toAminoAcidLL());
+  }
+}
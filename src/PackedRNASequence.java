@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/* RNA sequence stored with 2 bits per base (A=0, C=1, G=2, U=3, as in AminoAcidResources), 32 bases per long.
+ * Characters that are not a base (N, gaps...) are kept in a separate, sorted exceptions list and packed as 0.
+ * Bases are stored in upper case. Three consecutive 2-bit fields are directly the 6-bit codon index,
+ * so codons are decoded with shifts on whole words and one table lookup.
+ * It is a CharSequence, so AminoAcidLL.createFromRNASequence also accepts it. */
+class PackedRNASequence implements CharSequence {
+  private static final char[] BASES = {'A', 'C', 'G', 'U'};
+
+  private final long[] words;
+  private final int length;
+  private final int[] exceptionPositions;
+  private final char[] exceptionChars;
+
+  /********************************************************************************************/
+  public PackedRNASequence(CharSequence inSequence) {
+    length = inSequence.length();
+    words = new long[(length + 31) >>> 5];
+
+    int exceptions = 0;
+    for (int i = 0; i < length; i++) {
+      if (AminoAcidResources.baseIndex(inSequence.charAt(i)) < 0)
+        exceptions++;
+    }
+    exceptionPositions = new int[exceptions];
+    exceptionChars = new char[exceptions];
+
+    exceptions = 0;
+    for (int i = 0; i < length; i++) {
+      char c = inSequence.charAt(i);
+      int base = AminoAcidResources.baseIndex(c);
+      if (base < 0) {
+        exceptionPositions[exceptions] = i;
+        exceptionChars[exceptions++] = c;
+        continue;
+      }
+      //the first base of a word goes in the highest bits
+      words[i >>> 5] |= (long) base << (62 - 2 * (i & 31));
+    }
+  }
+
+  /********************************************************************************************/
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length)
+      throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+
+    int exception = Arrays.binarySearch(exceptionPositions, index);
+    if (exception >= 0)
+      return exceptionChars[exception];
+    return BASES[(int) (words[index >>> 5] >>> (62 - 2 * (index & 31))) & 3];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    StringBuilder sb = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      sb.append(charAt(i));
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return subSequence(0, length).toString();
+  }
+
+  /********************************************************************************************/
+  /* 6-bit index of the codon starting at position, read from the packed words (-1 if one of its characters
+   * is not a base). The whole codon has to be inside the sequence */
+  public int codonIndexAt(int position) {
+    if (position < 0 || position > length - 3)
+      throw new IndexOutOfBoundsException("codon at " + position + ", length " + length);
+
+    int exception = Arrays.binarySearch(exceptionPositions, position);
+    //the insertion point is the first exception after position
+    int after = exception >= 0 ? exception : -exception - 1;
+    if (exception >= 0 || (after < exceptionPositions.length && exceptionPositions[after] < position + 3))
+      return -1;
+    return packedCodon(position);
+  }
+
+  /* helper method that reads the 3 bases at position, which may be split between two words */
+  private int packedCodon(int position) {
+    int word = position >>> 5;
+    int offset = position & 31;
+    long bits = words[word] << (2 * offset);
+    if (offset > 29)
+      bits |= words[word + 1] >>> (64 - 2 * offset);
+    return (int) (bits >>> 58);
+  }
+
+  /********************************************************************************************/
+  /* Counts the codons like AminoAcidLL.createFromRNASequence (stopping at the first STOP codon),
+   * decoding them from the packed words */
+  public CodonUsageProfile toCodonUsageProfile() {
+    CodonUsageProfile profile = new CodonUsageProfile();
+    int nextException = 0;
+
+    for (int i = 0; i + 3 <= length; i += 3) {
+      //skips the exceptions that are behind this codon
+      while (nextException < exceptionPositions.length && exceptionPositions[nextException] < i) {
+        nextException++;
+      }
+      boolean invalid = nextException < exceptionPositions.length && exceptionPositions[nextException] < i + 3;
+
+      int codonIndex = invalid ? -1 : packedCodon(i);
+      if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
+        break;
+      profile.addCodon(codonIndex);
+    }
+    return profile;
+  }
+
+  /* sorted linked list of the amino acids of the sequence */
+  public AminoAcidLL toAminoAcidLL() {
+    return toCodonUsageProfile().toAminoAcidLL();
+  }
+}
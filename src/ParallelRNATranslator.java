@@ -0,0 +1,105 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/* Translates very long RNA sequences on a fork/join pool.
+ * The sequence is split on codon boundaries, every chunk is counted on its own and the partial lists
+ * are merged from left to right. A chunk that reaches a STOP codon ends the translation, so the chunks
+ * after it are dropped and the result is the same list (same order and counts) as
+ * AminoAcidLL.createFromRNASequence. */
+class ParallelRNATranslator {
+  /* number of codons below which a chunk is translated sequentially */
+  static final int DEFAULT_CHUNK_CODONS = 1 << 16;
+
+  public static AminoAcidLL createFromRNASequence(CharSequence inSequence) {
+    return createFromRNASequence(inSequence, ForkJoinPool.commonPool(), DEFAULT_CHUNK_CODONS);
+  }
+
+  public static AminoAcidLL createFromRNASequence(CharSequence inSequence, ForkJoinPool pool, int chunkCodons) {
+    if (chunkCodons < 1)
+      throw new IllegalArgumentException("chunkCodons must be positive: " + chunkCodons);
+
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    //only complete codons are translated
+    int end = inSequence.length() - inSequence.length() % 3;
+    Chunk result = pool.invoke(new ChunkTask(inSequence, 0, end, chunkCodons));
+
+    if (metrics != null) {
+      int nodes = result.head == null ? 0 : result.head.length();
+      metrics.ingest(result.codons, result.invalid, result.stopped ? 3 * result.codons : -1, nodes, System.nanoTime() - start);
+    }
+    return result.head;
+  }
+
+  /********************************************************************************************/
+  /* partial list of one chunk, whether the chunk reached a STOP codon and the codons it read before the STOP */
+  private static class Chunk {
+    final AminoAcidLL head;
+    final boolean stopped;
+    final long codons;
+    final long invalid;
+
+    Chunk(AminoAcidLL head, boolean stopped, long codons, long invalid) {
+      this.head = head;
+      this.stopped = stopped;
+      this.codons = codons;
+      this.invalid = invalid;
+    }
+  }
+
+  /********************************************************************************************/
+  private static class ChunkTask extends RecursiveTask<Chunk> {
+    private static final long serialVersionUID = 1L;
+
+    private final CharSequence sequence;
+    private final int from;
+    private final int to;
+    private final int chunkCodons;
+
+    ChunkTask(CharSequence sequence, int from, int to, int chunkCodons) {
+      this.sequence = sequence;
+      this.from = from;
+      this.to = to;
+      this.chunkCodons = chunkCodons;
+    }
+
+    @Override
+    protected Chunk compute() {
+      int codons = (to - from) / 3;
+      if (codons <= chunkCodons)
+        return translate();
+
+      //splits on a codon boundary
+      int middle = from + (codons / 2) * 3;
+      ChunkTask right = new ChunkTask(sequence, middle, to, chunkCodons);
+      right.fork();
+      Chunk left = new ChunkTask(sequence, from, middle, chunkCodons).compute();
+
+      //the STOP is in the left half, nothing after it is translated
+      if (left.stopped) {
+        right.cancel(false);
+        return left;
+      }
+
+      Chunk rightChunk = right.join();
+      return new Chunk(AminoAcidLL.appendCounts(left.head, rightChunk.head), rightChunk.stopped,
+          left.codons + rightChunk.codons, left.invalid + rightChunk.invalid);
+    }
+
+    /* same loop as AminoAcidLL.createFromRNASequence, over this chunk only */
+    private Chunk translate() {
+      AminoAcidLL head = null;
+      int invalid = 0;
+
+      for (int i = from; i < to; i += 3) {
+        int codonIndex = AminoAcidResources.codonIndex(sequence, i);
+        if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
+          return new Chunk(head, true, (i - from) / 3, invalid);
+        if (codonIndex < 0)
+          invalid++;
+        head = AminoAcidLL.appendCodon(head, codonIndex);
+      }
+      return new Chunk(head, false, (to - from) / 3, invalid);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/* Off-heap store for very large collections of profiles: every profile is a slab of 64 int codon counters
+ * (256 bytes) in direct buffers of 65536 profiles each, so 10M profiles are about 150 buffer objects
+ * for the garbage collector instead of hundreds of millions of nodes and arrays.
+ * Profiles are read through a reusable View (a flyweight) that mirrors the AminoAcidLL methods on a sorted list.
+ * Invalid codons are not stored. Adding is synchronized, reading is safe from any thread once a profile was added. */
+class ProfileArena {
+  private static final int SLAB_INTS = 64;
+  private static final int CHUNK_BITS = 16;
+  private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+  private IntBuffer[] chunks = new IntBuffer[4];
+  private volatile int size;
+
+  /********************************************************************************************/
+  /* Copies the codon counts of the profile into a new slab, returns its id */
+  public synchronized int add(CodonUsageProfile profile) {
+    int id = size;
+    int chunk = id >>> CHUNK_BITS;
+    if (chunk == chunks.length)
+      chunks = Arrays.copyOf(chunks, 2 * chunks.length);
+    if (chunks[chunk] == null) {
+      chunks[chunk] = ByteBuffer.allocateDirect((SLAB_INTS << CHUNK_BITS) * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    IntBuffer slab = chunks[chunk];
+    int base = (id & CHUNK_MASK) * SLAB_INTS;
+    for (int i = 0; i < SLAB_INTS; i++) {
+      slab.put(base + i, profile.count(i));
+    }
+    size = id + 1;
+    return id;
+  }
+
+  public int add(AminoAcidLL inList) {
+    return add(CodonUsageProfile.fromAminoAcidLL(inList));
+  }
+
+  /* number of profiles in the arena */
+  public int size() {
+    return size;
+  }
+
+  /* a new flyweight, positioned on profile 0 */
+  public View view() {
+    return new View();
+  }
+
+  /********************************************************************************************/
+  /* Reads one profile at a time without creating objects per profile: move it with at(id) */
+  class View {
+    private IntBuffer slab;
+    private int base;
+
+    /* moves the view to the profile, returns this view */
+    public View at(int id) {
+      if (id < 0 || id >= size)
+        throw new IndexOutOfBoundsException("profile " + id + ", size " + size);
+      slab = chunks[id >>> CHUNK_BITS];
+      base = (id & CHUNK_MASK) * SLAB_INTS;
+      return this;
+    }
+
+    /* count of a codon (see AminoAcidResources.codonIndex) */
+    public int count(int codonIndex) {
+      return slab.get(base + codonIndex);
+    }
+
+    /* total count of the amino acid at position i of CodonUsageProfile.AMINO_ACIDS */
+    private int totalCountAt(int i) {
+      int sum = 0;
+      for (int codonIndex : CodonUsageProfile.CODON_INDEXES[i]) {
+        sum += count(codonIndex);
+      }
+      return sum;
+    }
+
+    /* same as aminoAcidList() of the sorted list of this profile */
+    public char[] aminoAcidList() {
+      int used = 0;
+      for (int i = 0; i < CodonUsageProfile.AMINO_ACIDS.length; i++) {
+        if (totalCountAt(i) > 0)
+          used++;
+      }
+      char[] ret = new char[used];
+      used = 0;
+      for (int i = 0; i < CodonUsageProfile.AMINO_ACIDS.length; i++) {
+        if (totalCountAt(i) > 0)
+          ret[used++] = CodonUsageProfile.AMINO_ACIDS[i];
+      }
+      return ret;
+    }
+
+    /* same as aminoAcidCounts() of the sorted list, written into dest. Returns the number of counts written */
+    public int aminoAcidCounts(int[] dest, int offset) {
+      int i = offset;
+      for (int a = 0; a < CodonUsageProfile.AMINO_ACIDS.length; a++) {
+        int total = totalCountAt(a);
+        if (total > 0)
+          dest[i++] = total;
+      }
+      return i - offset;
+    }
+
+    public int[] aminoAcidCounts() {
+      int[] counts = new int[CodonUsageProfile.AMINO_ACIDS.length];
+      return Arrays.copyOf(counts, aminoAcidCounts(counts, 0));
+    }
+
+    /* same as codonCompare between this profile and the other view's profile */
+    public int codonCompare(View other) {
+      int diff = 0;
+      for (int i = 0; i < SLAB_INTS; i++) {
+        diff += Math.abs(count(i) - other.count(i));
+      }
+      return diff;
+    }
+
+    /* same as aminoAcidCompare between this profile and the other view's profile */
+    public int aminoAcidCompare(View other) {
+      int diff = 0;
+      for (int i = 0; i < CodonUsageProfile.AMINO_ACIDS.length; i++) {
+        diff += Math.abs(totalCountAt(i) - other.totalCountAt(i));
+      }
+      return diff;
+    }
+
+    /* copies the profile back onto the heap as a sorted list */
+    public AminoAcidLL toAminoAcidLL() {
+      CodonUsageProfile profile = new CodonUsageProfile();
+      for (int i = 0; i < SLAB_INTS; i++) {
+        profile.setCount(i, count(i));
+      }
+      return profile.toAminoAcidLL();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* Bounded cache of translated sequences, so repeated transcripts cost one hash pass instead of a translation.
+ * Sequences are keyed by their length and two independent 64-bit hashes computed in the same pass,
+ * which makes a collision between different sequences negligible without keeping the sequences.
+ * The least recently used profile is evicted when the cache is full. Cached profiles are read-only and shared,
+ * getAminoAcidLL builds new list nodes every time because lists are changed by sort. */
+class ProfileCache {
+  private final LinkedHashMap<Key, CodonUsageProfile> entries;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public ProfileCache(int maxEntries) {
+    if (maxEntries < 1)
+      throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+
+    //access order, so the eldest entry is the least recently used one
+    entries = new LinkedHashMap<Key, CodonUsageProfile>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CodonUsageProfile> eldest) {
+        if (size() <= maxEntries)
+          return false;
+        evictions++;
+        return true;
+      }
+    };
+  }
+
+  /********************************************************************************************/
+  /* The shared profile of the sequence (same counts as CodonUsageProfile.createFromRNASequence) */
+  public CodonUsageProfile get(CharSequence inSequence) {
+    Key key = new Key(inSequence);
+
+    synchronized (this) {
+      CodonUsageProfile profile = entries.get(key);
+      if (profile != null) {
+        hits++;
+        return profile;
+      }
+      misses++;
+    }
+
+    //translates outside of the lock, two threads may translate the same sequence at the same time
+    CodonUsageProfile profile = CodonUsageProfile.createFromRNASequence(inSequence).immutableCopy();
+    synchronized (this) {
+      CodonUsageProfile previous = entries.putIfAbsent(key, profile);
+      return previous != null ? previous : profile;
+    }
+  }
+
+  /* A new sorted list with the cached counts of the sequence */
+  public AminoAcidLL getAminoAcidLL(CharSequence inSequence) {
+    return get(inSequence).toAminoAcidLL();
+  }
+
+  /********************************************************************************************/
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /********************************************************************************************/
+  /* length and two hashes of a sequence: FNV-1a and a multiply/rotate hash with a different constant */
+  private static final class Key {
+    private final int length;
+    private final long hash1;
+    private final long hash2;
+
+    Key(CharSequence inSequence) {
+      long h1 = 0xcbf29ce484222325L;
+      long h2 = 0x9E3779B97F4A7C15L;
+      for (int i = 0; i < inSequence.length(); i++) {
+        char c = inSequence.charAt(i);
+        h1 = (h1 ^ c) * 0x100000001b3L;
+        h2 = Long.rotateLeft(h2 + c * 0xC2B2AE3D27D4EB4FL, 31) * 0x165667B19E3779F9L;
+      }
+      length = inSequence.length();
+      hash1 = h1;
+      hash2 = h2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key))
+        return false;
+      Key other = (Key) o;
+      return length == other.length && hash1 == other.hash1 && hash2 == other.hash2;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(hash1 ^ hash2);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/* Compact binary form of a codon usage profile:
+ *   varint invalidCount, varint number of used codons, then for every used codon (ascending codon index)
+ *   one byte with the codon index and a varint with its count.
+ * Varints are unsigned LEB128 (7 bits per byte, high bit set when more bytes follow).
+ * A profile with 20 used codons of small counts takes about 40 bytes. */
+class ProfileCodec {
+
+  /********************************************************************************************/
+  public static void write(CodonUsageProfile profile, OutputStream out) throws IOException {
+    int used = 0;
+    for (int i = 0; i < 64; i++) {
+      if (profile.count(i) != 0)
+        used++;
+    }
+
+    writeVarint(profile.invalidCount(), out);
+    writeVarint(used, out);
+    for (int i = 0; i < 64; i++) {
+      if (profile.count(i) != 0) {
+        out.write(i);
+        writeVarint(profile.count(i), out);
+      }
+    }
+  }
+
+  public static void write(AminoAcidLL inList, OutputStream out) throws IOException {
+    write(CodonUsageProfile.fromAminoAcidLL(inList), out);
+  }
+
+  /* Reads the next profile, null if the stream is at its end */
+  public static CodonUsageProfile read(InputStream in) throws IOException {
+    int first = in.read();
+    if (first < 0)
+      return null;
+
+    CodonUsageProfile profile = new CodonUsageProfile();
+    profile.setInvalidCount(readVarint(first, in));
+    int used = readVarint(in.read(), in);
+    for (int i = 0; i < used; i++) {
+      int codonIndex = in.read();
+      if (codonIndex < 0)
+        throw new EOFException("truncated profile");
+      profile.setCount(codonIndex, readVarint(in.read(), in));
+    }
+    return profile;
+  }
+
+  /********************************************************************************************/
+  private static void writeVarint(int value, OutputStream out) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  /* helper method that reads a varint whose first byte was already read */
+  private static int readVarint(int b, InputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      if (b < 0)
+        throw new EOFException("truncated profile");
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+      b = in.read();
+    }
+  }
+
+  /********************************************************************************************/
+  /* Decoding straight from a buffer (absolute reads, the buffer's position is not used).
+   * position[0] is the offset to read from and is moved past the value */
+  static int readVarint(ByteBuffer buffer, int[] position) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = buffer.get(position[0]++);
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/* All-pairs aminoAcidCompare / codonCompare distances between N profiles.
+ * Every profile is flattened once into a count vector (per amino acid or per codon), the distances are then
+ * the sums of absolute differences of the vectors, which is what the list compares return on sorted lists.
+ * Only the upper triangle (i < j) is stored, packed row by row, either in an int[] or in a memory-mapped file
+ * for matrices that do not fit in the heap. The triangle is filled in parallel, tile by tile. */
+class ProfileDistanceMatrix {
+  enum Metric { AMINO_ACID, CODON }
+
+  /* number of profiles per side of a tile, a tile pair of codon vectors is 32KB */
+  private static final int TILE = 64;
+  /* the mapped file is split in segments of 2^28 ints (1GB), a single mapping is limited to 2GB */
+  private static final int SEGMENT_BITS = 28;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+  private final int size;
+  private final int[] heap;
+  private final IntBuffer[] segments;
+  private final MappedByteBuffer[] mapped;
+
+  private ProfileDistanceMatrix(int size, int[] heap, MappedByteBuffer[] mapped) {
+    this.size = size;
+    this.heap = heap;
+    this.mapped = mapped;
+    if (mapped == null) {
+      this.segments = null;
+    }
+    else {
+      this.segments = new IntBuffer[mapped.length];
+      for (int i = 0; i < mapped.length; i++) {
+        segments[i] = mapped[i].order(ByteOrder.nativeOrder()).asIntBuffer();
+      }
+    }
+  }
+
+  /********************************************************************************************/
+  /* Computes the matrix in the heap. Limited to about 65k profiles (the triangle must fit in an int[]) */
+  public static ProfileDistanceMatrix compute(List<AminoAcidLL> profiles, Metric metric) {
+    long cells = cellCount(profiles.size());
+    if (cells > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("too many profiles for an in-heap matrix: " + profiles.size());
+
+    ProfileDistanceMatrix matrix = new ProfileDistanceMatrix(profiles.size(), new int[(int) cells], null);
+    matrix.fill(profiles, metric);
+    return matrix;
+  }
+
+  /* Computes the matrix into a memory-mapped file (native byte order ints, upper triangle row by row) */
+  public static ProfileDistanceMatrix computeMapped(List<AminoAcidLL> profiles, Metric metric, Path file)
+      throws IOException {
+    long cells = cellCount(profiles.size());
+    int segmentCount = (int) ((cells + SEGMENT_MASK) >>> SEGMENT_BITS);
+    MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (int i = 0; i < segmentCount; i++) {
+        long first = (long) i << SEGMENT_BITS;
+        long length = Math.min(cells - first, 1L << SEGMENT_BITS);
+        mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, first * 4, length * 4);
+      }
+    }
+
+    ProfileDistanceMatrix matrix = new ProfileDistanceMatrix(profiles.size(), null, mapped);
+    matrix.fill(profiles, metric);
+    return matrix;
+  }
+
+  /********************************************************************************************/
+  /* number of profiles */
+  public int size() {
+    return size;
+  }
+
+  /* distance between profiles i and j */
+  public int get(int i, int j) {
+    if (i == j)
+      return 0;
+    if (i > j)
+      return get(j, i);
+    return read(cellIndex(i, j));
+  }
+
+  /* writes the mapped pages back to the file, does nothing for an in-heap matrix */
+  public void flush() {
+    if (mapped != null) {
+      for (MappedByteBuffer buffer : mapped) {
+        buffer.force();
+      }
+    }
+  }
+
+  /********************************************************************************************/
+  /* helper method that flattens every profile into a row of one int[] (amino acid totals or codon counts) */
+  static int[] flatten(List<AminoAcidLL> profiles, Metric metric) {
+    int width = width(metric);
+    int[] vectors = new int[profiles.size() * width];
+
+    for (int p = 0; p < profiles.size(); p++) {
+      CodonUsageProfile profile = CodonUsageProfile.fromAminoAcidLL(profiles.get(p));
+      int[] row = metric == Metric.CODON ? profile.codonCounts() : profile.aminoAcidTotals();
+      System.arraycopy(row, 0, vectors, p * width, width);
+    }
+    return vectors;
+  }
+
+  static int width(Metric metric) {
+    return metric == Metric.CODON ? 64 : CodonUsageProfile.AMINO_ACIDS.length;
+  }
+
+  /* sum of the absolute differences of two rows of a flattened array */
+  static int distance(int[] vectors, int a, int b, int width) {
+    int diff = 0;
+    int offsetA = a * width;
+    int offsetB = b * width;
+    for (int k = 0; k < width; k++) {
+      diff += Math.abs(vectors[offsetA + k] - vectors[offsetB + k]);
+    }
+    return diff;
+  }
+
+  /* helper method that fills the upper triangle, every (row tile, column tile) pair is one parallel task */
+  private void fill(List<AminoAcidLL> profiles, Metric metric) {
+    int[] vectors = flatten(profiles, metric);
+    int width = width(metric);
+    int tiles = (size + TILE - 1) / TILE;
+
+    IntStream.range(0, tiles * tiles).parallel().forEach(t -> {
+      int rowTile = t / tiles;
+      int colTile = t % tiles;
+      if (colTile < rowTile)
+        return;
+
+      int rowEnd = Math.min(size, (rowTile + 1) * TILE);
+      int colEnd = Math.min(size, (colTile + 1) * TILE);
+      for (int i = rowTile * TILE; i < rowEnd; i++) {
+        for (int j = Math.max(i + 1, colTile * TILE); j < colEnd; j++) {
+          write(cellIndex(i, j), distance(vectors, i, j, width));
+        }
+      }
+    });
+  }
+
+  private static long cellCount(int n) {
+    return (long) n * (n - 1) / 2;
+  }
+
+  /* position of (i, j), i < j, in the packed upper triangle */
+  private long cellIndex(int i, int j) {
+    return (long) i * (2L * size - i - 1) / 2 + (j - i - 1);
+  }
+
+  private int read(long index) {
+    if (heap != null)
+      return heap[(int) index];
+    return segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & SEGMENT_MASK));
+  }
+
+  private void write(long index, int value) {
+    if (heap != null)
+      heap[(int) index] = value;
+    else
+      segments[(int) (index >>> SEGMENT_BITS)].put((int) (index & SEGMENT_MASK), value);
+  }
+}
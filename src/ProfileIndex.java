@@ -0,0 +1,195 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/* k-nearest-profile search by codonCompare or aminoAcidCompare distance.
+ * The distances are sums of absolute differences (L1) of the flattened count vectors, which is a metric,
+ * so a vantage-point tree can skip whole subtrees with the triangle inequality.
+ * The exact parallel scan skips profiles whose total codon count alone is further away than the current k-th match
+ * (|total(a) - total(b)| is never more than the distance). */
+class ProfileIndex {
+  /* one search result: the position of the profile in the indexed list and its distance to the query */
+  static class Match {
+    final int index;
+    final int distance;
+
+    Match(int index, int distance) {
+      this.index = index;
+      this.distance = distance;
+    }
+  }
+
+  private final ProfileDistanceMatrix.Metric metric;
+  private final int width;
+  private final int[] vectors;
+  private final int[] totals;
+
+  //the tree, in arrays: node n has a vantage point, the median distance to it (threshold) and two subtrees (-1 if empty)
+  private final int[] vantage;
+  private final int[] threshold;
+  private final int[] inside;
+  private final int[] outside;
+  private int nodes;
+  private final int root;
+
+  /********************************************************************************************/
+  public ProfileIndex(List<AminoAcidLL> profiles, ProfileDistanceMatrix.Metric metric) {
+    this.metric = metric;
+    this.width = ProfileDistanceMatrix.width(metric);
+    this.vectors = ProfileDistanceMatrix.flatten(profiles, metric);
+
+    int n = profiles.size();
+    totals = new int[n];
+    for (int i = 0; i < n; i++) {
+      for (int k = 0; k < width; k++) {
+        totals[i] += vectors[i * width + k];
+      }
+    }
+
+    vantage = new int[n];
+    threshold = new int[n];
+    inside = new int[n];
+    outside = new int[n];
+    int[] items = new int[n];
+    for (int i = 0; i < n; i++) {
+      items[i] = i;
+    }
+    root = build(items, 0, n, new long[n]);
+  }
+
+  /* helper method that builds the subtree of items[from, to): the first item is the vantage point, the others are
+   * ordered by their distance to it and split at the median */
+  private int build(int[] items, int from, int to, long[] keys) {
+    if (from >= to)
+      return -1;
+
+    int node = nodes++;
+    int point = items[from];
+    vantage[node] = point;
+
+    for (int i = from + 1; i < to; i++) {
+      keys[i] = ((long) ProfileDistanceMatrix.distance(vectors, point, items[i], width) << 32) | items[i];
+    }
+    Arrays.sort(keys, from + 1, to);
+    for (int i = from + 1; i < to; i++) {
+      items[i] = (int) keys[i];
+    }
+
+    int middle = (from + 1 + to) >>> 1;
+    threshold[node] = middle < to ? (int) (keys[middle] >>> 32) : 0;
+    inside[node] = build(items, from + 1, middle, keys);
+    outside[node] = build(items, middle, to, keys);
+    return node;
+  }
+
+  /********************************************************************************************/
+  /* The k profiles closest to the query, nearest first, searched in the tree */
+  public Match[] nearest(AminoAcidLL query, int k) {
+    checkK(k);
+    int[] vector = flattenQuery(query);
+    PriorityQueue<Long> best = new PriorityQueue<>(k + 1, Collections.reverseOrder());
+    search(root, vector, k, best);
+    return toMatches(best);
+  }
+
+  private void search(int node, int[] vector, int k, PriorityQueue<Long> best) {
+    if (node < 0)
+      return;
+
+    int d = distanceTo(vector, vantage[node]);
+    offer(best, k, d, vantage[node]);
+
+    //searches the side of the query first, the other side only if it can still hold a closer profile
+    if (d < threshold[node]) {
+      search(inside[node], vector, k, best);
+      if (d + worst(best, k) >= threshold[node])
+        search(outside[node], vector, k, best);
+    }
+    else {
+      search(outside[node], vector, k, best);
+      if (d - worst(best, k) <= threshold[node])
+        search(inside[node], vector, k, best);
+    }
+  }
+
+  /* Same result as nearest, comparing the query against every profile in parallel */
+  public Match[] nearestByScan(AminoAcidLL query, int k) {
+    checkK(k);
+    int[] vector = flattenQuery(query);
+    int queryTotal = 0;
+    for (int value : vector) {
+      queryTotal += value;
+    }
+    int total = queryTotal;
+    int n = totals.length;
+    int chunk = Math.max(1024, n / (4 * Runtime.getRuntime().availableProcessors()));
+
+    PriorityQueue<Long> best = IntStream.range(0, (n + chunk - 1) / chunk).parallel().mapToObj(c -> {
+      PriorityQueue<Long> local = new PriorityQueue<>(k + 1, Collections.reverseOrder());
+      for (int i = c * chunk; i < Math.min(n, (c + 1) * chunk); i++) {
+        //the total count difference is a lower bound of the distance
+        if (Math.abs(total - totals[i]) > worst(local, k))
+          continue;
+        offer(local, k, distanceTo(vector, i), i);
+      }
+      return local;
+    }).reduce(new PriorityQueue<>(k + 1, Collections.reverseOrder()), (a, b) -> {
+      PriorityQueue<Long> merged = new PriorityQueue<>(k + 1, Collections.reverseOrder());
+      for (long key : a) {
+        offer(merged, k, (int) (key >>> 32), (int) key);
+      }
+      for (long key : b) {
+        offer(merged, k, (int) (key >>> 32), (int) key);
+      }
+      return merged;
+    });
+    return toMatches(best);
+  }
+
+  /********************************************************************************************/
+  private int[] flattenQuery(AminoAcidLL query) {
+    return ProfileDistanceMatrix.flatten(Collections.singletonList(query), metric);
+  }
+
+  private int distanceTo(int[] vector, int i) {
+    int diff = 0;
+    int offset = i * width;
+    for (int k = 0; k < width; k++) {
+      diff += Math.abs(vector[k] - vectors[offset + k]);
+    }
+    return diff;
+  }
+
+  private static void checkK(int k) {
+    if (k < 1)
+      throw new IllegalArgumentException("k must be positive: " + k);
+  }
+
+  /* helper method that keeps the k closest profiles, ordered by distance then index (encoded in one long) */
+  private static void offer(PriorityQueue<Long> best, int k, int distance, int index) {
+    long key = ((long) distance << 32) | index;
+    if (best.size() < k) {
+      best.add(key);
+    }
+    else if (key < best.peek()) {
+      best.poll();
+      best.add(key);
+    }
+  }
+
+  /* distance of the k-th match, nothing can be pruned until there are k matches */
+  private static int worst(PriorityQueue<Long> best, int k) {
+    return best.size() < k ? Integer.MAX_VALUE / 2 : (int) (best.peek() >>> 32);
+  }
+
+  private static Match[] toMatches(PriorityQueue<Long> best) {
+    Match[] matches = new Match[best.size()];
+    for (int i = matches.length - 1; i >= 0; i--) {
+      long key = best.poll();
+      matches[i] = new Match((int) key, (int) (key >>> 32));
+    }
+    return matches;
+  }
+}
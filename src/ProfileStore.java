@@ -0,0 +1,174 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/* File of many profiles in the ProfileCodec format that is read through a memory mapping.
+ * Layout: the encoded profiles one after the other, then a table with the offset of every profile (longs),
+ * then the number of profiles (long) and a magic number (int).
+ * The compare methods walk the encoded codon counts directly, no AminoAcidLL nodes are created.
+ * A single mapping is limited to 2GB, larger collections must be split over several stores. */
+class ProfileStore {
+  private static final int MAGIC = 0x43555031; // "CUP1"
+  private static final int FOOTER = 12;
+
+  private final MappedByteBuffer buffer;
+  private final int size;
+  private final int tableStart;
+
+  private ProfileStore(MappedByteBuffer buffer, int size, int tableStart) {
+    this.buffer = buffer;
+    this.size = size;
+    this.tableStart = tableStart;
+  }
+
+  /********************************************************************************************/
+  /* Appends profiles to a new store file, the offset table is written by close() */
+  static class Writer implements AutoCloseable {
+    private final CountingOutputStream out;
+    private final DataOutputStream data;
+    private long[] offsets = new long[1024];
+    private int count;
+
+    Writer(Path file) throws IOException {
+      out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+      data = new DataOutputStream(out);
+    }
+
+    public void append(CodonUsageProfile profile) throws IOException {
+      if (count == offsets.length)
+        offsets = Arrays.copyOf(offsets, 2 * count);
+      offsets[count++] = out.written;
+      ProfileCodec.write(profile, out);
+    }
+
+    public void append(AminoAcidLL inList) throws IOException {
+      append(CodonUsageProfile.fromAminoAcidLL(inList));
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (int i = 0; i < count; i++) {
+        data.writeLong(offsets[i]);
+      }
+      data.writeLong(count);
+      data.writeInt(MAGIC);
+      data.close();
+    }
+  }
+
+  /* helper stream that keeps track of the offset of the next profile */
+  private static class CountingOutputStream extends FilterOutputStream {
+    long written;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      written++;
+    }
+  }
+
+  /********************************************************************************************/
+  public static ProfileStore open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length > Integer.MAX_VALUE)
+        throw new IOException("profile store is larger than 2GB: " + file);
+      if (length < FOOTER)
+        throw new IOException("not a profile store: " + file);
+
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      if (buffer.getInt((int) length - 4) != MAGIC)
+        throw new IOException("not a profile store: " + file);
+
+      int size = (int) buffer.getLong((int) length - FOOTER);
+      return new ProfileStore(buffer, size, (int) length - FOOTER - 8 * size);
+    }
+  }
+
+  /* number of profiles in the store */
+  public int size() {
+    return size;
+  }
+
+  /* decodes profile i */
+  public CodonUsageProfile get(int i) {
+    CodonUsageProfile profile = new CodonUsageProfile();
+    int[] position = {offset(i)};
+    profile.setInvalidCount(ProfileCodec.readVarint(buffer, position));
+    int used = ProfileCodec.readVarint(buffer, position);
+    for (int k = 0; k < used; k++) {
+      int codonIndex = buffer.get(position[0]++);
+      profile.setCount(codonIndex, ProfileCodec.readVarint(buffer, position));
+    }
+    return profile;
+  }
+
+  /********************************************************************************************/
+  /* Same as codonCompare between profiles i and j: both encoded codon lists are in ascending
+   * codon index order, so they are walked together */
+  public int codonCompare(int i, int j) {
+    return compare(i, j, null);
+  }
+
+  /* Same as aminoAcidCompare between profiles i and j */
+  public int aminoAcidCompare(int i, int j) {
+    return compare(i, j, new int[CodonUsageProfile.AMINO_ACIDS.length]);
+  }
+
+  /* helper method that walks both profiles. Without totals it adds up the codon differences,
+   * otherwise it collects the per amino acid differences into totals first */
+  private int compare(int i, int j, int[] totals) {
+    int[] a = {offset(i)};
+    int[] b = {offset(j)};
+    ProfileCodec.readVarint(buffer, a);
+    ProfileCodec.readVarint(buffer, b);
+    int leftA = ProfileCodec.readVarint(buffer, a);
+    int leftB = ProfileCodec.readVarint(buffer, b);
+
+    int diff = 0;
+    int codonA = leftA > 0 ? buffer.get(a[0]++) : 64;
+    int codonB = leftB > 0 ? buffer.get(b[0]++) : 64;
+    while (codonA < 64 || codonB < 64) {
+      int codon = Math.min(codonA, codonB);
+      int delta = 0;
+      if (codonA == codon) {
+        delta += ProfileCodec.readVarint(buffer, a);
+        codonA = --leftA > 0 ? buffer.get(a[0]++) : 64;
+      }
+      if (codonB == codon) {
+        delta -= ProfileCodec.readVarint(buffer, b);
+        codonB = --leftB > 0 ? buffer.get(b[0]++) : 64;
+      }
+
+      if (totals == null)
+        diff += Math.abs(delta);
+      else
+        totals[CodonUsageProfile.aminoAcidPosition(codon)] += delta;
+    }
+
+    if (totals != null) {
+      for (int k = 0; k < totals.length; k++) {
+        diff += Math.abs(totals[k]);
+      }
+    }
+    return diff;
+  }
+
+  private int offset(int i) {
+    if (i < 0 || i >= size)
+      throw new IndexOutOfBoundsException("profile " + i + ", size " + size);
+    return (int) buffer.getLong(tableStart + 8 * i);
+  }
+}
@@ -0,0 +1,16 @@
+/* Receives measurements from the hot paths: ingest in AminoAcidLL, CodonUsageProfile, ParallelRNATranslator,
+ * FastaProfileReader (one call per record) and VectorCodonCounter, sort in AminoAcidLL and compare in
+ * AminoAcidLL and CodonUsageProfile.
+ * Install an implementation with Metrics.install (ProfilingStats is the default one).
+ * Methods are called from the translating threads, implementations must be thread-safe and cheap. */
+interface ProfilingMetrics {
+  /* one sequence was translated: codons read (STOP not included), invalid codons among them,
+   * position of the STOP codon (-1 if none), nodes in the resulting list and time taken */
+  void ingest(long codons, long invalidCodons, long stopPosition, int nodes, long nanos);
+
+  /* one list was sorted: its nodes, how many had to be moved ahead of others and time taken */
+  void sort(int nodes, long relinks, long nanos);
+
+  /* one aminoAcidCompare/codonCompare call and its time */
+  void compare(long nanos);
+}
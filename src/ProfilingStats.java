@@ -0,0 +1,138 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/* Default ProfilingMetrics: adds everything up in LongAdders, so reporting threads do not contend.
+ * The getters are the snapshot API, the same values are published over JMX by register(). */
+public class ProfilingStats implements ProfilingMetrics, ProfilingStatsMBean {
+  private final LongAdder ingests = new LongAdder();
+  private final LongAdder codons = new LongAdder();
+  private final LongAdder invalidCodons = new LongAdder();
+  private final LongAdder stops = new LongAdder();
+  private volatile long lastStopPosition = -1;
+  private final LongAdder nodes = new LongAdder();
+  private final LongAdder ingestNanos = new LongAdder();
+  private final LongAdder sorts = new LongAdder();
+  private final LongAdder sortNodes = new LongAdder();
+  private final LongAdder sortRelinks = new LongAdder();
+  private final LongAdder sortNanos = new LongAdder();
+  private final LongAdder compares = new LongAdder();
+  private final LongAdder compareNanos = new LongAdder();
+
+  /********************************************************************************************/
+  @Override
+  public void ingest(long codonCount, long invalidCount, long stopPosition, int nodeCount, long nanos) {
+    ingests.increment();
+    codons.add(codonCount);
+    invalidCodons.add(invalidCount);
+    if (stopPosition >= 0) {
+      stops.increment();
+      lastStopPosition = stopPosition;
+    }
+    nodes.add(nodeCount);
+    ingestNanos.add(nanos);
+  }
+
+  @Override
+  public void sort(int nodeCount, long relinks, long nanos) {
+    sorts.increment();
+    sortNodes.add(nodeCount);
+    sortRelinks.add(relinks);
+    sortNanos.add(nanos);
+  }
+
+  @Override
+  public void compare(long nanos) {
+    compares.increment();
+    compareNanos.add(nanos);
+  }
+
+  /* publishes these stats on the platform MBean server */
+  public ObjectName register(String name) throws JMException {
+    ObjectName objectName = new ObjectName("AminoAcidLL:type=ProfilingStats,name=" + name);
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    return objectName;
+  }
+
+  /********************************************************************************************/
+  @Override
+  public long getIngests() {
+    return ingests.sum();
+  }
+
+  @Override
+  public long getCodons() {
+    return codons.sum();
+  }
+
+  @Override
+  public long getInvalidCodons() {
+    return invalidCodons.sum();
+  }
+
+  @Override
+  public long getStops() {
+    return stops.sum();
+  }
+
+  @Override
+  public long getLastStopPosition() {
+    return lastStopPosition;
+  }
+
+  @Override
+  public long getNodes() {
+    return nodes.sum();
+  }
+
+  @Override
+  public long getIngestNanos() {
+    return ingestNanos.sum();
+  }
+
+  @Override
+  public double getCodonsPerSecond() {
+    long nanos = getIngestNanos();
+    return nanos == 0 ? 0 : getCodons() * 1e9 / nanos;
+  }
+
+  @Override
+  public long getSorts() {
+    return sorts.sum();
+  }
+
+  @Override
+  public long getSortNodes() {
+    return sortNodes.sum();
+  }
+
+  @Override
+  public long getSortRelinks() {
+    return sortRelinks.sum();
+  }
+
+  @Override
+  public long getSortNanos() {
+    return sortNanos.sum();
+  }
+
+  @Override
+  public long getCompares() {
+    return compares.sum();
+  }
+
+  @Override
+  public long getCompareNanos() {
+    return compareNanos.sum();
+  }
+
+  @Override
+  public void reset() {
+    for (LongAdder adder : new LongAdder[]{ingests, codons, invalidCodons, stops, nodes, ingestNanos,
+        sorts, sortNodes, sortRelinks, sortNanos, compares, compareNanos}) {
+      adder.reset();
+    }
+    lastStopPosition = -1;
+  }
+}
@@ -0,0 +1,18 @@
+/* JMX view of ProfilingStats */
+public interface ProfilingStatsMBean {
+  long getIngests();
+  long getCodons();
+  long getInvalidCodons();
+  long getStops();
+  long getLastStopPosition();
+  long getNodes();
+  long getIngestNanos();
+  double getCodonsPerSecond();
+  long getSorts();
+  long getSortNodes();
+  long getSortRelinks();
+  long getSortNanos();
+  long getCompares();
+  long getCompareNanos();
+  void reset();
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/* Profiles every reading frame of a sequence in a single pass.
+ * Frames 0-2 are the forward frames (frame f is the sequence from position f), frames 3-5 are the frames of
+ * the reverse complement (frame 3+r is the reverse complement from position r). Every frame is translated
+ * like AminoAcidLL.createFromRNASequence, stopping at its own first STOP codon.
+ * The reverse frames are read backwards, so their first STOP is the last one in sequence order:
+ * their counts start over after every STOP found in the forward pass. */
+class ReadingFrameProfiler {
+  private final CodonUsageProfile[] profiles;
+  private final int[] stopPositions;
+
+  private ReadingFrameProfiler(int frames) {
+    profiles = new CodonUsageProfile[frames];
+    stopPositions = new int[frames];
+    for (int f = 0; f < frames; f++) {
+      profiles[f] = new CodonUsageProfile();
+    }
+    Arrays.fill(stopPositions, -1);
+  }
+
+  /********************************************************************************************/
+  /* Reads the sequence once, counting the three forward frames and, if reverseComplement is true,
+   * the three reverse complement frames too */
+  public static ReadingFrameProfiler profile(CharSequence inSequence, boolean reverseComplement) {
+    ReadingFrameProfiler result = new ReadingFrameProfiler(reverseComplement ? 6 : 3);
+    int length = inSequence.length();
+    //the last codon of each frame, forward and reverse complement (complement of the bases, in reverse order)
+    int forward = 0;
+    int reverse = 0;
+    //position of the last character that is not a base
+    int lastInvalid = -1;
+
+    for (int i = 0; i < length; i++) {
+      int base = AminoAcidResources.baseIndex(inSequence.charAt(i));
+      if (base < 0)
+        lastInvalid = i;
+      forward = ((forward << 2) | (base & 3)) & 63;
+      reverse = (reverse >>> 2) | ((3 - (base & 3)) << 4);
+
+      if (i < 2)
+        continue;
+      int start = i - 2;
+      boolean invalid = lastInvalid >= start;
+
+      int frame = start % 3;
+      if (result.stopPositions[frame] < 0)
+        result.count(frame, invalid ? -1 : forward, start);
+
+      if (reverseComplement) {
+        frame = 3 + (length - 1 - i) % 3;
+        int codonIndex = invalid ? -1 : reverse;
+        if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*') {
+          //everything read so far comes after this STOP in the reverse complement
+          result.profiles[frame].clear();
+          result.stopPositions[frame] = length - 1 - i;
+        }
+        else {
+          result.profiles[frame].addCodon(codonIndex);
+        }
+      }
+    }
+    return result;
+  }
+
+  /* helper method that counts a codon of a forward frame, or stops the frame at a STOP codon */
+  private void count(int frame, int codonIndex, int position) {
+    if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
+      stopPositions[frame] = position;
+    else
+      profiles[frame].addCodon(codonIndex);
+  }
+
+  /********************************************************************************************/
+  /* number of frames that were profiled (3 or 6) */
+  public int frameCount() {
+    return profiles.length;
+  }
+
+  public CodonUsageProfile codonUsage(int frame) {
+    return profiles[frame];
+  }
+
+  /* sorted linked list of the frame, null if it has no codons */
+  public AminoAcidLL aminoAcidList(int frame) {
+    return profiles[frame].toAminoAcidLL();
+  }
+
+  /* position of the STOP codon that ended the frame, -1 if there is none.
+   * Positions of the reverse frames are in the reverse complement sequence */
+  public int stopPosition(int frame) {
+    return stopPositions[frame];
+  }
+}
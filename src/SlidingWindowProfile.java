@@ -0,0 +1,92 @@
+/* Codon usage of the last windowSize codons of a growing sequence.
+ * Every new codon increments its counter and decrements the counter of the codon that leaves the window,
+ * and the distances to a reference profile (the same values as codonCompare and aminoAcidCompare)
+ * are updated from the two changed counters, so each step is O(1) whatever the window size.
+ * STOP codons take a place in the window but are not counted, like in AminoAcidLL. */
+class SlidingWindowProfile {
+  private final int[] window;
+  private int oldest;
+  private int size;
+
+  private final CodonUsageProfile profile = new CodonUsageProfile();
+  private final int[] totals = new int[CodonUsageProfile.AMINO_ACIDS.length];
+
+  private CodonUsageProfile reference = new CodonUsageProfile();
+  private int[] referenceTotals = new int[CodonUsageProfile.AMINO_ACIDS.length];
+  private int codonDistance;
+  private int aminoAcidDistance;
+
+  public SlidingWindowProfile(int windowSize) {
+    if (windowSize < 1)
+      throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+    window = new int[windowSize];
+  }
+
+  /********************************************************************************************/
+  /* Adds the next codon of the sequence, the oldest codon leaves the window once it is full */
+  public void addCodon(int codonIndex) {
+    if (size == window.length) {
+      int leaving = window[oldest];
+      profile.removeCodon(leaving);
+      update(leaving, -1);
+    }
+    else {
+      size++;
+    }
+
+    window[oldest] = codonIndex;
+    oldest = (oldest + 1) % window.length;
+    profile.addCodon(codonIndex);
+    update(codonIndex, 1);
+  }
+
+  public void addCodon(String inCodon) {
+    addCodon(AminoAcidResources.codonIndex(inCodon));
+  }
+
+  /* helper method that updates the amino acid total and both distances after a counter changed by delta */
+  private void update(int codonIndex, int delta) {
+    int position = CodonUsageProfile.aminoAcidPosition(codonIndex);
+    //invalid and STOP codons are not counted
+    if (position < 0)
+      return;
+
+    int count = profile.count(codonIndex);
+    int referenceCount = reference.count(codonIndex);
+    codonDistance += Math.abs(count - referenceCount) - Math.abs(count - delta - referenceCount);
+
+    totals[position] += delta;
+    int total = totals[position];
+    int referenceTotal = referenceTotals[position];
+    aminoAcidDistance += Math.abs(total - referenceTotal) - Math.abs(total - delta - referenceTotal);
+  }
+
+  /********************************************************************************************/
+  /* Sets the profile the window is compared to, the distances are recomputed once */
+  public void setReference(CodonUsageProfile inReference) {
+    reference = inReference;
+    referenceTotals = inReference.aminoAcidTotals();
+    codonDistance = profile.codonCompare(inReference);
+    aminoAcidDistance = profile.aminoAcidCompare(inReference);
+  }
+
+  /* same as codonCompare between the window and the reference */
+  public int codonCompare() {
+    return codonDistance;
+  }
+
+  /* same as aminoAcidCompare between the window and the reference */
+  public int aminoAcidCompare() {
+    return aminoAcidDistance;
+  }
+
+  /* number of codons in the window */
+  public int size() {
+    return size;
+  }
+
+  /* sorted linked list of the codons in the window */
+  public AminoAcidLL toAminoAcidLL() {
+    return profile.toAminoAcidLL();
+  }
+}
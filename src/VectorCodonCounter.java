@@ -0,0 +1,83 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/* Counts the codons of an ASCII encoded RNA sequence with the same result as AminoAcidLL.createFromRNASequence
+ * (stops at the first STOP codon, invalid codons are only counted in invalidCount).
+ * The Vector API path, VectorCodonKernel, lives in its own source root (src-vector) because it needs the
+ * jdk.incubator.vector module to compile: javac --add-modules jdk.incubator.vector src/*.java src-vector/*.java.
+ * src alone compiles without it. The kernel is looked up at class initialization and used when its class is on the
+ * class path and the module is in the boot layer (run with --add-modules jdk.incubator.vector), otherwise the
+ * scalar loop below is used. -Daminoacid.vector=false forces the scalar loop. */
+class VectorCodonCounter {
+  /* VectorCodonKernel.count(byte[], int, int), null when the scalar loop is used */
+  private static final MethodHandle KERNEL = findKernel();
+
+  /* true when the Vector API path is used */
+  public static boolean isVectorized() {
+    return KERNEL != null;
+  }
+
+  private static MethodHandle findKernel() {
+    if ("false".equals(System.getProperty("aminoacid.vector"))
+        || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+      return null;
+    try {
+      Class<?> kernel = Class.forName("VectorCodonKernel");
+      return MethodHandles.lookup().findStatic(kernel, "count",
+          MethodType.methodType(CodonUsageProfile.class, byte[].class, int.class, int.class));
+    }
+    catch (ReflectiveOperationException | LinkageError e) {
+      //src-vector was not compiled
+      return null;
+    }
+  }
+
+  /********************************************************************************************/
+  public static CodonUsageProfile createFromRNASequence(byte[] rna) {
+    return createFromRNASequence(rna, 0, rna.length);
+  }
+
+  /* counts the codons of rna[from, to) */
+  public static CodonUsageProfile createFromRNASequence(byte[] rna, int from, int to) {
+    ProfilingMetrics metrics = Metrics.current();
+    long start = metrics != null ? System.nanoTime() : 0;
+    CodonUsageProfile profile = KERNEL != null ? vectorized(rna, from, to) : scalar(rna, from, to);
+
+    if (metrics != null)
+      profile.reportIngest(metrics, start, profile.codonsRead() < (to - from) / 3);
+    return profile;
+  }
+
+  /* sorted linked list of the sequence, the same as createFromRNASequence followed by sort */
+  public static AminoAcidLL createAminoAcidLL(byte[] rna) {
+    return createFromRNASequence(rna).toAminoAcidLL();
+  }
+
+  /********************************************************************************************/
+  /* helper method that calls the kernel, it does not throw checked exceptions */
+  private static CodonUsageProfile vectorized(byte[] rna, int from, int to) {
+    try {
+      return (CodonUsageProfile) KERNEL.invokeExact(rna, from, to);
+    }
+    catch (RuntimeException | Error e) {
+      throw e;
+    }
+    catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /* scalar fallback, one table lookup per codon */
+  static CodonUsageProfile scalar(byte[] rna, int from, int to) {
+    CodonUsageProfile profile = new CodonUsageProfile();
+
+    for (int i = from; i + 3 <= to; i += 3) {
+      int codonIndex = AminoAcidResources.codonIndex(rna, i);
+      if (AminoAcidResources.getAminoAcidFromCodonIndex(codonIndex) == '*')
+        break;
+      profile.addCodon(codonIndex);
+    }
+    return profile;
+  }
+}